@@ -0,0 +1,33 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Endpoint used by the benchmarks. The MQTT client is replaced by a no-op transport: payloads are serialized exactly
+ * like the real endpoint does, accounted in the statistics and released immediately, as if delivered at once.
+ */
+class MqttBenchmarkEndpoint extends MqttEndpoint {
+    private MqttSerializer serializer;
+
+    MqttBenchmarkEndpoint(String uuid, MqttPayloadCodec codec) {
+        this(uuid, codec, new MqttStatistics());
+    }
+
+    private MqttBenchmarkEndpoint(String uuid, MqttPayloadCodec codec, MqttStatistics statistics) {
+        this(uuid, new MqttSerializer(codec, new MqttBufferPool(1 << 20, statistics)), statistics);
+    }
+
+    private MqttBenchmarkEndpoint(String uuid, MqttSerializer serializer, MqttStatistics statistics) {
+        super(uuid, null, null, new Properties(), serializer, statistics);
+        this.serializer = serializer;
+    }
+
+    @Override
+    void publish(String topic, MqttSerializable object, boolean retained) throws IOException {
+        // Serialize and release the payload instead of handing it to the MQTT client.
+        byte[] payload = serializer.serialize(object);
+        getStatistics().messagePublished(payload.length);
+        serializer.release(payload);
+    }
+}
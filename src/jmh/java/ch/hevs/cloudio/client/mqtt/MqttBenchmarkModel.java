@@ -0,0 +1,69 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import ch.hevs.cloudio.client.Attribute;
+import ch.hevs.cloudio.client.AttributeConstraint;
+import ch.hevs.cloudio.client.Node;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Base state of the benchmarks: builds an endpoint with a single node holding the requested number of attributes
+ * (MEASURE unless specified otherwise), spread over objects nested at the requested depth.
+ */
+@State(Scope.Benchmark)
+public abstract class MqttBenchmarkModel {
+    private static final int ATTRIBUTES_PER_OBJECT = 10;
+
+    @Param({"json", "cbor"})
+    String codec;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    int attributes;
+
+    @Param({"1", "3", "6"})
+    int depth;
+
+    MqttBenchmarkEndpoint endpoint;
+    Attribute<Double>[] model;
+    private int next = 0;
+
+    void buildModel() {
+        buildModel(AttributeConstraint.MEASURE);
+    }
+
+    @SuppressWarnings("unchecked")
+    void buildModel(AttributeConstraint constraint) {
+        endpoint = new MqttBenchmarkEndpoint("benchmark", "cbor".equals(codec) ? new MqttCborCodec() :
+                new MqttJsonCodec(false));
+        model = new Attribute[attributes];
+
+        // Spread the leaf objects evenly over the levels of the tree.
+        int leafs = (attributes + ATTRIBUTES_PER_OBJECT - 1) / ATTRIBUTES_PER_OBJECT;
+        int branching = Math.max(1, (int) Math.ceil(Math.pow(leafs, 1.0 / depth)));
+
+        Node node = endpoint.node("node");
+        for (int leaf = 0, index = 0; index < attributes; ++leaf) {
+            // Walk down to the leaf object, the path is given by the digits of the leaf number in base branching.
+            ch.hevs.cloudio.client.Object object = null;
+            for (int level = 0, path = leaf; level < depth; ++level, path /= branching) {
+                String name = "object" + path % branching;
+                object = object == null ? node.object(name) : object.object(name);
+            }
+
+            // Add the attributes to the leaf object.
+            for (int i = 0; i < ATTRIBUTES_PER_OBJECT && index < attributes; ++i, ++index) {
+                model[index] = object.attribute("attribute" + i, Double.class);
+                model[index].constraint(constraint);
+                model[index].initialize(index * 0.5, 1400000000f);
+            }
+        }
+    }
+
+    Attribute<Double> nextAttribute() {
+        // Round robin over all attributes of the model.
+        Attribute<Double> attribute = model[next];
+        next = (next + 1) % model.length;
+        return attribute;
+    }
+}
@@ -0,0 +1,46 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import ch.hevs.cloudio.client.Attribute;
+import ch.hevs.cloudio.client.PublishMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures commit() in COMMIT publish mode, with a single changed attribute and with all attributes changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MqttCommitBenchmark extends MqttBenchmarkModel {
+    private double value = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        buildModel();
+
+        // Publish the initial state, so that the model is in sync.
+        endpoint.setPublishMode(PublishMode.COMMIT);
+        endpoint.commit();
+    }
+
+    @Benchmark
+    public long commitSingleChange() {
+        nextAttribute().setValue(++value);
+        endpoint.commit();
+        return endpoint.getStatistics().getPublishedBytes();
+    }
+
+    @Benchmark
+    public long commitAllChanged() {
+        ++value;
+        for (Attribute<Double> attribute: model) {
+            attribute.setValue(value);
+        }
+        endpoint.commit();
+        return endpoint.getStatistics().getPublishedBytes();
+    }
+}
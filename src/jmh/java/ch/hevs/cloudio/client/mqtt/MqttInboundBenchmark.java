@@ -0,0 +1,97 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import ch.hevs.cloudio.client.Attribute;
+import ch.hevs.cloudio.client.AttributeConstraint;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures messageArrived() without a broker by replaying a corpus of synthetic @set messages on a model of SET_POINT
+ * attributes, either one message per attribute or one message per object setting all its attributes at once. The
+ * messages are processed on the calling thread and nothing is published, so the benchmark covers the lookup of the
+ * addressed element, the decoding, the validation and the application of the values.
+ *
+ * The score is the number of messages processed per second, run with "-prof gc" in order to get the allocations per
+ * message (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MqttInboundBenchmark extends MqttBenchmarkModel {
+    @Param({"attribute", "object"})
+    String target;
+
+    private String[] topics;
+    private MqttMessage[] messages;
+    private int next = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        buildModel(AttributeConstraint.SET_POINT);
+        MqttPayloadCodec payloadCodec = "cbor".equals(codec) ? new MqttCborCodec() : new MqttJsonCodec(false);
+
+        List<String> topicList = new ArrayList<String>();
+        List<MqttMessage> messageList = new ArrayList<MqttMessage>();
+        if ("object".equals(target)) {
+            // One message per object containing the new values of all its attributes.
+            for (int start = 0; start < model.length; ) {
+                MqttObject object = ((MqttAbstractAttribute) model[start]).getParent();
+                int end = start;
+                while (end < model.length && ((MqttAbstractAttribute) model[end]).getParent() == object) {
+                    ++end;
+                }
+                topicList.add(object.getUuid().getSetTopic());
+                messageList.add(new MqttMessage(encode(payloadCodec, start, end)));
+                start = end;
+            }
+        } else {
+            // One message per attribute containing its new value.
+            for (int i = 0; i < model.length; ++i) {
+                topicList.add(((MqttAbstractAttribute) model[i]).getUuid().getSetTopic());
+                messageList.add(new MqttMessage(encode(payloadCodec, i, -1)));
+            }
+        }
+        topics = topicList.toArray(new String[topicList.size()]);
+        messages = messageList.toArray(new MqttMessage[messageList.size()]);
+    }
+
+    @Benchmark
+    public int messageArrived() throws Exception {
+        // Round robin over the corpus.
+        int index = next;
+        next = (index + 1) % topics.length;
+        endpoint.messageArrived(topics[index], messages[index]);
+        return index;
+    }
+
+    private byte[] encode(MqttPayloadCodec codec, int start, int end) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator gen = codec.createGenerator(out);
+        if (end < 0) {
+            // A single value.
+            gen.writeNumber(start * 0.25);
+        } else {
+            // The document of the object containing only the values of the attributes.
+            gen.writeStartObject();
+            gen.writeObjectFieldStart("attributes");
+            for (int i = start; i < end; ++i) {
+                Attribute<Double> attribute = model[i];
+                gen.writeNumberField(attribute.getName(), i * 0.25);
+            }
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+        gen.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,82 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the number writer with the number formatting of the JSON generator, for measurement like values (a few
+ * decimals) and for timestamps (milliseconds published as seconds).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MqttNumberWriterBenchmark {
+    private static final int COUNT = 1000;
+
+    private double[] values = new double[COUNT];
+    private long[] timestamps = new long[COUNT];
+    private ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private JsonGenerator gen;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < COUNT; ++i) {
+            values[i] = Math.round(random.nextGaussian() * 100000) / 1000.0;
+            timestamps[i] = 1400000000000L + (random.nextLong() & 0xFFFFFFFFFFL);
+        }
+        gen = new MqttJsonCodec(false).createGenerator(out);
+    }
+
+    @Benchmark
+    public int generatorDoubles() throws IOException {
+        gen.writeStartArray();
+        for (double value: values) {
+            gen.writeNumber(value);
+        }
+        return end();
+    }
+
+    @Benchmark
+    public int writerDoubles() throws IOException {
+        gen.writeStartArray();
+        for (double value: values) {
+            MqttNumberWriter.writeNumber(gen, value);
+        }
+        return end();
+    }
+
+    @Benchmark
+    public int generatorTimestamps() throws IOException {
+        gen.writeStartArray();
+        for (long timestamp: timestamps) {
+            gen.writeNumber(timestamp / 1000.0);
+        }
+        return end();
+    }
+
+    @Benchmark
+    public int writerTimestamps() throws IOException {
+        gen.writeStartArray();
+        for (long timestamp: timestamps) {
+            MqttNumberWriter.writeNumber(gen, timestamp / 1000.0);
+        }
+        return end();
+    }
+
+    private int end() throws IOException {
+        gen.writeEndArray();
+        gen.flush();
+        int size = out.size();
+        out.reset();
+        return size;
+    }
+}
@@ -0,0 +1,36 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the serialization of the whole endpoint, once with an unchanged model and once after a single attribute
+ * has changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MqttSerializationBenchmark extends MqttBenchmarkModel {
+    private double value = 0;
+
+    @Setup
+    public void setup() {
+        buildModel();
+    }
+
+    @Benchmark
+    public String getJson() throws IOException {
+        return endpoint.getJson();
+    }
+
+    @Benchmark
+    public String getJsonAfterChange() throws IOException {
+        nextAttribute().setValue(++value);
+        return endpoint.getJson();
+    }
+}
@@ -0,0 +1,39 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import ch.hevs.cloudio.client.NumberAttribute;
+import ch.hevs.cloudio.client.PublishMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures setValue() of a single attribute in IMMEDIATE publish mode, which includes the publication of the attribute,
+ * with a boxed and with a primitive value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MqttSetValueBenchmark extends MqttBenchmarkModel {
+    private double value = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        buildModel();
+        endpoint.setPublishMode(PublishMode.IMMEDIATE);
+    }
+
+    @Benchmark
+    public long setValue() {
+        nextAttribute().setValue(++value);
+        return endpoint.getStatistics().getPublishedBytes();
+    }
+
+    @Benchmark
+    public long setDoubleValue() {
+        ((NumberAttribute) nextAttribute()).setValueAtMillis(++value, 1400000000000L);
+        return endpoint.getStatistics().getPublishedBytes();
+    }
+}
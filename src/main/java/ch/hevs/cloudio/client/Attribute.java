@@ -87,13 +87,22 @@ public interface Attribute<T> extends UniqueIdentifiable {
             throws IllegalArgumentException, IllegalStateException;
 
     /**
-     * Returns the timestamp of the current attribute value as seconds since UNIX Epoch. Resolutions smaller than
-     * a second can be achieved as the datatype is a floating point number.
+     * Returns the timestamp of the current attribute value as seconds since UNIX Epoch. Note that a float can not
+     * represent today's timestamps with a resolution better than about two minutes, use
+     * getCurrentValueTimestampMillis() if the exact timestamp is needed.
      *
      * @return  Timestamp of the attribute value in seconds since Unix Epoch.
      */
     float getCurrentValueTimestamp();
 
+    /**
+     * Returns the timestamp of the current attribute value as milliseconds since UNIX Epoch, which is the resolution
+     * the timestamps are stored and published with.
+     *
+     * @return  Timestamp of the attribute value in milliseconds since Unix Epoch.
+     */
+    long getCurrentValueTimestampMillis();
+
     /**
      * Sets the validator to use for the given attribute. Default is null which results in no validity checks at all
      * when setting the attribute.
@@ -111,6 +120,20 @@ public interface Attribute<T> extends UniqueIdentifiable {
      */
     Attribute validator(AttributeValidator<? extends Comparable<T>> validator);
 
+    /**
+     * Sets the minimal time between two changes of the attribute from remote. Changes received before the interval
+     * since the last accepted change has elapsed are either dropped or delayed until the interval has elapsed, in
+     * which case only the newest of them is applied, depending on the configuration of the endpoint. This protects
+     * the attribute listeners (and the hardware behind them) from remote applications changing a value too often.
+     *
+     * By default, the minimal interval configured for the endpoint is used.
+     *
+     * @param minimumInterval   Minimal time between two changes from remote in milliseconds, 0 for no limit or a
+     *                          negative value in order to use the interval configured for the endpoint.
+     * @return                  Reference to the attribute itself in order to enable method call chaining.
+     */
+    Attribute throttle(long minimumInterval);
+
     /**
      * Adds an attribute listener. It is important to know that the listener gets only called of a value has been
      * changed from the network, local changes do not trigger a notification to the listeners.
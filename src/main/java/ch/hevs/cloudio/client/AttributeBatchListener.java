@@ -0,0 +1,22 @@
+package ch.hevs.cloudio.client;
+
+import java.util.List;
+
+/**
+ * Extension of the AttributeListener interface for listeners interested in changes applied together. The cloud can
+ * change the values of many attributes of a node or an object using a single message. In that case, a listener
+ * implementing this interface gets notified only once with all changed attributes it is registered on, instead of
+ * once per attribute. Changes of single attributes are still notified using attributeChanged().
+ *
+ * @see AttributeListener
+ */
+public interface AttributeBatchListener extends AttributeListener {
+    /**
+     * The given attributes have been changed together. The new values can be read from the attributes passed as
+     * argument to the method, all values have been validated and applied before the method is called.
+     *
+     * @param attributes    The attributes that have been changed, in the order they were listed in the message.
+     * @see AttributeValidator
+     */
+    void attributesChanged(List<Attribute> attributes);
+}
@@ -0,0 +1,25 @@
+package ch.hevs.cloudio.client;
+
+/**
+ * AttributeValidator for attributes of type Integer (IntegerAttribute) validating the new value as a primitive int, so
+ * that values do not have to be boxed in order to be validated.
+ *
+ * @see IntegerAttribute
+ */
+public interface IntegerValidator extends AttributeValidator<Integer> {
+    /**
+     * This method is called each time before actually changing a value of an attribute. If the method returns true, the
+     * attribute is set to the new value, otherwise the new value is ignored.
+     *
+     * @param attribute The attribute that is subject of the value change.
+     * @param newValue  The new value to apply.
+     * @return True if the new value is valid, false otherwise.
+     */
+    boolean validate(Attribute attribute, int newValue);
+
+    @Override
+    default boolean validate(Attribute attribute, Integer newValue) {
+        // Null values are never valid.
+        return newValue != null && validate(attribute, newValue.intValue());
+    }
+}
@@ -0,0 +1,48 @@
+package ch.hevs.cloudio.client;
+
+/**
+ * Attribute holding a floating point number, all attributes of type Double or Float created by
+ * Object.attribute() implement this interface. In addition to the methods of Attribute, it allows to read and write
+ * the value as a primitive double, so that high-rate updates do not box every value.
+ *
+ * @see Attribute
+ * @see ch.hevs.cloudio.client.validator.DoubleRangeValidator
+ */
+public interface NumberAttribute extends Attribute<Double> {
+    /**
+     * Returns true if the attribute has a value. Together with the primitive getter, this replaces getValue() for
+     * callers reading the value at a high rate, as they do not need the null returned for attributes without value.
+     *
+     * @return  True if the attribute has a value, false otherwise.
+     */
+    boolean hasValue();
+
+    /**
+     * Returns the actual value of the attribute or 0 if the attribute does not has a value yet.
+     *
+     * @return  Value of the attribute or 0.
+     */
+    double getDoubleValue();
+
+    /**
+     * Sets the value of the attribute to the given value and the timestamp to the current system time. Apart from the
+     * value not being boxed, this method behaves exactly like Attribute.setValue().
+     *
+     * @param value                     The actual value to set.
+     * @throws IllegalArgumentException This exception is thrown if the validator of the attribute rejects the value.
+     * @throws IllegalAccessError       Thrown if the constraint is different as STATUS and MEASURE.
+     */
+    void setValue(double value) throws IllegalArgumentException, IllegalAccessError;
+
+    /**
+     * Sets the value of the attribute to the given value and the timestamp to the given one. Apart from the value not
+     * being boxed and the timestamp being given in milliseconds instead of seconds, this method behaves exactly like
+     * Attribute.setValue().
+     *
+     * @param value                     The actual value to set.
+     * @param timestamp                 Timestamp in milliseconds since epoch.
+     * @throws IllegalArgumentException This exception is thrown if the validator of the attribute rejects the value.
+     * @throws IllegalAccessError       Thrown if the constraint is different as STATUS and MEASURE.
+     */
+    void setValueAtMillis(double value, long timestamp) throws IllegalArgumentException, IllegalAccessError;
+}
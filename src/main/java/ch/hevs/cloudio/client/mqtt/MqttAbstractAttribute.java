@@ -1,23 +1,28 @@
 package ch.hevs.cloudio.client.mqtt;
 
 import ch.hevs.cloudio.client.*;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
 
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * @todo : doc...
  */
-public abstract class MqttAbstractAttribute<T> implements Attribute<T>, MqttSynchronizable {
+public abstract class MqttAbstractAttribute<T> implements Attribute<T>, MqttSynchronizable, MqttSerializable {
     private MqttObject parent = null;
     private String name;
 
     private AttributeConstraint constraint = AttributeConstraint.UNSPECIFIED;
-    private float timestamp = 0f;
+    private long timestamp = 0;
 
-    private boolean outOfSync = true;
+    private MqttChangeTracker changes = new MqttChangeTracker(this, true);
     private AttributeValidator validator = null;
-    private List<AttributeListener> listeners = new LinkedList<AttributeListener>();
+    private long throttleInterval = -1;
+    private List<AttributeListener> listeners = new CopyOnWriteArrayList<AttributeListener>();
 
     public MqttAbstractAttribute(String name) {
         this.name = name;
@@ -25,34 +30,117 @@ public abstract class MqttAbstractAttribute<T> implements Attribute<T>, MqttSync
 
     public abstract Class getType();
 
+    abstract boolean setValueFromMqtt(JsonParser parser) throws IOException;
+
+    abstract T decodeValueFromMqtt(JsonParser parser) throws IOException;
+
+    abstract void applyValueFromMqtt(T value);
+
     public MqttObject getParent() {
         return parent;
     }
 
     public void setParent(MqttObject parent) {
         this.parent = parent;
+
+        // The UUID and the topics depend on the parent, so they are computed once the element is attached.
+        uuid = parent != null ? new MqttUuid(this) : null;
+
+        // The parent counts its children with changes.
+        changes.attach(parent != null ? parent.getChangeTracker() : null);
+    }
+
+    MqttChangeTracker getChangeTracker() {
+        return changes;
     }
 
     protected AttributeValidator getValidator() {
         return validator;
     }
 
-    public float getTimestamp() {
+    public long getTimestamp() {
         return timestamp;
     }
 
-    protected void setTimestamp(float timestamp) {
+    protected void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
     }
 
+    protected long currentTimeMillis() {
+        // Use the clock of the endpoint, which may be a coarse clock avoiding to read the system time on every update.
+        return parent != null ? parent.getClock().millis() : System.currentTimeMillis();
+    }
+
+    protected static long toMillis(float timestamp) {
+        // Timestamps given in seconds since epoch (floating point) by the API are stored in milliseconds.
+        return Math.round(timestamp * 1000.0);
+    }
+
     protected void setOutOfSync() {
-        this.outOfSync = true;
+        changes.setOutOfSync();
+        invalidateParentFragment();
+    }
+
+    protected void invalidateParentFragment() {
+        // The cached representation of the parent object contains the attribute, so it is outdated now.
+        if (parent != null) {
+            parent.invalidateFragment();
+        }
     }
 
     protected List<AttributeListener> getListeners() {
         return listeners;
     }
 
+    protected void notifyListeners() {
+        // Avoid creating a notification if nobody is interested in.
+        if (listeners.isEmpty()) {
+            return;
+        }
+
+        // The listeners may be called by another thread, the list is copied on write so that they can be added and
+        // removed at any time.
+        final MqttAbstractAttribute<T> attribute = this;
+        Runnable notification = new Runnable() {
+            @Override
+            public void run() {
+                for (AttributeListener listener: listeners) {
+                    listener.attributeChanged(attribute);
+                }
+            }
+        };
+
+        // Let the endpoint deliver the notification.
+        if (parent != null) {
+            parent.deliverNotification(notification);
+        } else {
+            notification.run();
+        }
+    }
+
+    protected void changedFromMqtt() {
+        // Inform all attribute listeners and the parent about a change received from remote.
+        notifyListeners();
+        if (parent != null) {
+            parent.attributeChanged(this);
+        }
+    }
+
+    long getThrottleInterval() {
+        return throttleInterval;
+    }
+
+    boolean isWritableFromMqtt() {
+        // Only PARAMETER and SET_POINT can be changed from remote.
+        return constraint == AttributeConstraint.PARAMETER || constraint == AttributeConstraint.SET_POINT;
+    }
+
+    @SuppressWarnings("unchecked")
+    boolean isValidFromMqtt(T value) {
+        // Let the validator check the value before actually applying it.
+        return validator == null || validator.validate(this, value);
+    }
+
 
     /*** Attribute Implementation *************************************************************************************/
 
@@ -61,13 +149,9 @@ public abstract class MqttAbstractAttribute<T> implements Attribute<T>, MqttSync
         return name;
     }
 
-    private Uuid uuid = null;
+    private MqttUuid uuid = null;
     @Override
-    public Uuid getUuid() {
-        // Lazy initialisation of UUID.
-        if (uuid == null) {
-            uuid = new MqttUuid(this);
-        }
+    public MqttUuid getUuid() {
         return uuid;
     }
 
@@ -83,12 +167,25 @@ public abstract class MqttAbstractAttribute<T> implements Attribute<T>, MqttSync
             throw new IllegalArgumentException("Constraint can not be set to " +
                     AttributeConstraint.UNSPECIFIED.toString());
 
+        AttributeConstraint previous = this.constraint;
         this.constraint = constraint;
+        invalidateParentFragment();
+
+        // The constraint is part of the structure of the endpoint.
+        if (previous != constraint && parent != null) {
+            parent.attributeConstraintChanged(this);
+        }
+
         return this;
     }
 
     @Override
     public float getCurrentValueTimestamp() {
+        return timestamp / 1000f;
+    }
+
+    @Override
+    public long getCurrentValueTimestampMillis() {
         return timestamp;
     }
 
@@ -98,6 +195,12 @@ public abstract class MqttAbstractAttribute<T> implements Attribute<T>, MqttSync
         return this;
     }
 
+    @Override
+    public Attribute throttle(long minimumInterval) {
+        throttleInterval = minimumInterval;
+        return this;
+    }
+
     @Override
     public void addAttributeListener(AttributeListener listener) {
         if (listener != null) {
@@ -118,7 +221,7 @@ public abstract class MqttAbstractAttribute<T> implements Attribute<T>, MqttSync
     @Override
     public boolean hasChanges() {
         // If it is out of sync, an attribute has actual changes.
-        return outOfSync;
+        return changes.isOutOfSync();
     }
 
     @Override
@@ -130,7 +233,7 @@ public abstract class MqttAbstractAttribute<T> implements Attribute<T>, MqttSync
     @Override
     public void setSynchronized() {
         // When the data has been synchronized with the cloud, we can consider the value as up to date.
-        outOfSync = false;
+        changes.setSynchronized();
     }
 
     @Override
@@ -144,4 +247,18 @@ public abstract class MqttAbstractAttribute<T> implements Attribute<T>, MqttSync
             setSynchronized();
         }
     }
+
+    @Override
+    public void serializeChanges(JsonGenerator gen) throws IOException {
+        // An attribute is always serialized completely.
+        serialize(gen);
+    }
+
+    @Override
+    public long getStructureHash() {
+        // The structure of an attribute is defined by its name, its type and its constraint.
+        long hash = MqttStructureHash.add(MqttStructureHash.SEED, name);
+        hash = MqttStructureHash.add(hash, getType().getName());
+        return MqttStructureHash.add(hash, constraint.toString());
+    }
 }
@@ -0,0 +1,62 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import java.util.Arrays;
+
+/**
+ * Pool of payload arrays. The MQTT client takes the payload array as is, without offset or length, so every payload
+ * needs an array of exactly its length. Arrays are therefore pooled by their exact length: the payloads published at a
+ * steady rate have lengths varying within a narrow range, so once every length of that range has been published, the
+ * arrays returned by the MQTT client after delivery are enough to serve all new payloads.
+ *
+ * The pool retains at most the given number of bytes in total, arrays released while the pool is full are left to the
+ * garbage collector. Payloads longer than MAX_LENGTH are never pooled.
+ */
+class MqttBufferPool {
+    static final int MAX_LENGTH = 8192;
+
+    private final long capacity;
+    private final MqttStatistics statistics;
+    private final byte[][][] buffers = new byte[MAX_LENGTH + 1][][];
+    private final int[] counts = new int[MAX_LENGTH + 1];
+    private long size = 0;
+
+    public MqttBufferPool(long capacity, MqttStatistics statistics) {
+        this.capacity = capacity;
+        this.statistics = statistics;
+    }
+
+    public synchronized byte[] acquire(int length) {
+        // Reuse a free array of the exact length if there is one.
+        if (length <= MAX_LENGTH && counts[length] > 0) {
+            byte[] buffer = buffers[length][--counts[length]];
+            buffers[length][counts[length]] = null;
+            size -= length;
+            statistics.payloadRecycled();
+            return buffer;
+        }
+
+        // No array available, we have to allocate a new one.
+        statistics.payloadAllocated(length);
+        return new byte[length];
+    }
+
+    public synchronized void release(byte[] buffer) {
+        int length = buffer.length;
+        if (length == 0 || length > MAX_LENGTH || size + length > capacity) {
+            return;
+        }
+
+        // Lazy initialisation and growth of the arrays of the given length.
+        byte[][] pooled = buffers[length];
+        if (pooled == null) {
+            pooled = new byte[4][];
+            buffers[length] = pooled;
+        } else if (counts[length] == pooled.length) {
+            pooled = Arrays.copyOf(pooled, pooled.length * 2);
+            buffers[length] = pooled;
+        }
+
+        pooled[counts[length]++] = buffer;
+        size += length;
+    }
+}
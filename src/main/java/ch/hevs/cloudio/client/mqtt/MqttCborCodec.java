@@ -0,0 +1,66 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes the payloads using CBOR (RFC 7049), a binary representation of the JSON data model. Numbers and timestamps
+ * are written in their binary form, which makes the messages considerably smaller than their JSON counterparts.
+ */
+class MqttCborCodec implements MqttPayloadCodec {
+    static final String NAME = "cbor";
+
+    private final CBORFactory factory = new CBORFactory();
+
+    public MqttCborCodec() {
+        factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+
+    /*** MqttPayloadCodec Implementation ******************************************************************************/
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isTextual() {
+        return false;
+    }
+
+    @Override
+    public JsonGenerator createGenerator(OutputStream out) throws IOException {
+        return factory.createGenerator(out);
+    }
+
+    @Override
+    public JsonParser createParser(byte[] payload) throws IOException {
+        return factory.createParser(payload);
+    }
+
+    @Override
+    public boolean supportsFragments() {
+        return true;
+    }
+
+    @Override
+    public boolean isValueSeparator(byte b) {
+        // CBOR does not use any separators.
+        return false;
+    }
+
+    @Override
+    public void writeFragment(JsonGenerator gen, OutputStream out, byte[] fragment) throws IOException {
+        // The CBOR generator does not support raw values, but as there are no separators, it is enough to account for
+        // the value in the generator's context and write the fragment directly to the stream.
+        gen.flush();
+        ((JsonWriteContext) gen.getOutputContext()).writeValue();
+        out.write(fragment);
+    }
+}
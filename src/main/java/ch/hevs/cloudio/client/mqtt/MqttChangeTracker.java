@@ -0,0 +1,165 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+
+/**
+ * Tracks the changes of an element of the data model that have not been published yet. An element is changed if it
+ * is out of sync itself or if at least one of its children is changed. Every tracker counts its changed children and
+ * informs the tracker of its parent whenever it becomes changed or unchanged, so the counts are always up to date and
+ * checking whether an element or its children have changes does not depend on the size of the model.
+ *
+ * The tracker at the root of the tree (the endpoint) additionally collects the trackers of all elements becoming out
+ * of sync in a queue, so that a commit only has to visit the elements that have actually changed. Every tracker is
+ * queued at most once until it is polled from the queue again.
+ *
+ * Changes may happen concurrently (local changes and changes received from remote), so every tracker updates its own
+ * state under its lock, but informs its parent after having released it.
+ */
+final class MqttChangeTracker {
+    private final MqttSynchronizable element;
+    private volatile MqttChangeTracker parent = null;
+    private boolean outOfSync;
+    private int changedChildren = 0;
+    private boolean queued = false;
+    private Queue<MqttChangeTracker> queue = null;
+
+    MqttChangeTracker(MqttSynchronizable element, boolean outOfSync) {
+        this.element = element;
+        this.outOfSync = outOfSync;
+    }
+
+    MqttChangeTracker(MqttSynchronizable root) {
+        this(root, false);
+        queue = new ConcurrentLinkedQueue<MqttChangeTracker>();
+    }
+
+    void attach(MqttChangeTracker parent) {
+        boolean changed;
+        boolean outOfSync;
+        synchronized (this) {
+            this.parent = parent;
+            changed = isChanged();
+            outOfSync = this.outOfSync;
+        }
+
+        // The parent has a new changed child.
+        if (changed && parent != null) {
+            parent.childChanged(1);
+        }
+        if (outOfSync) {
+            enqueue();
+        }
+    }
+
+    MqttSynchronizable getElement() {
+        return element;
+    }
+
+    MqttChangeTracker getParent() {
+        return parent;
+    }
+
+    synchronized boolean isOutOfSync() {
+        return outOfSync;
+    }
+
+    synchronized int getChangedChildrenCount() {
+        return changedChildren;
+    }
+
+    synchronized boolean isChanged() {
+        return outOfSync || changedChildren > 0;
+    }
+
+    void setOutOfSync() {
+        update(true, 0);
+    }
+
+    void setSynchronized() {
+        update(false, 0);
+    }
+
+    MqttChangeTracker poll() {
+        // Only the root has a queue.
+        MqttChangeTracker tracker = queue != null ? queue.poll() : null;
+        if (tracker != null) {
+            // The tracker can be queued again as soon as it has been taken from the queue.
+            synchronized (tracker) {
+                tracker.queued = false;
+            }
+        }
+        return tracker;
+    }
+
+    void purge() {
+        // Remove the queued trackers that are in sync again, for example because the whole tree has been published.
+        if (queue != null) {
+            queue.removeIf(new Predicate<MqttChangeTracker>() {
+                @Override
+                public boolean test(MqttChangeTracker tracker) {
+                    synchronized (tracker) {
+                        if (!tracker.outOfSync) {
+                            tracker.queued = false;
+                            return true;
+                        }
+                        return false;
+                    }
+                }
+            });
+        }
+    }
+
+    private void childChanged(int delta) {
+        update(null, delta);
+    }
+
+    private void update(Boolean outOfSync, int delta) {
+        MqttChangeTracker notified;
+        boolean changed;
+        boolean becameOutOfSync;
+        synchronized (this) {
+            boolean wasChanged = isChanged();
+            becameOutOfSync = outOfSync != null && outOfSync && !this.outOfSync;
+            if (outOfSync != null) {
+                this.outOfSync = outOfSync;
+            }
+            changedChildren += delta;
+            changed = isChanged();
+
+            // Only inform the parent if we became changed or unchanged.
+            notified = changed != wasChanged ? parent : null;
+        }
+
+        if (notified != null) {
+            notified.childChanged(changed ? 1 : -1);
+        }
+        if (becameOutOfSync) {
+            enqueue();
+        }
+    }
+
+    private void enqueue() {
+        synchronized (this) {
+            if (queued) {
+                return;
+            }
+            queued = true;
+        }
+
+        // Queue the tracker at the root of the tree.
+        MqttChangeTracker root = this;
+        while (root.parent != null) {
+            root = root.parent;
+        }
+        if (root.queue != null) {
+            root.queue.add(this);
+        } else {
+            // Not part of an endpoint (yet).
+            synchronized (this) {
+                queued = false;
+            }
+        }
+    }
+}
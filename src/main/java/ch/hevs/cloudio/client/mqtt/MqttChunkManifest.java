@@ -0,0 +1,30 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Published as @online message instead of the structure of the endpoint if the structure is published in chunks. The
+ * chunks have to be concatenated in order to get the actual structure.
+ */
+class MqttChunkManifest implements MqttSerializable {
+    private final int chunks;
+    private final long size;
+
+    public MqttChunkManifest(int chunks, long size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+
+    /*** MqttSerializable Implementation ******************************************************************************/
+
+    @Override
+    public void serialize(JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("chunks", chunks);
+        gen.writeNumberField("size", size);
+        gen.writeEndObject();
+    }
+}
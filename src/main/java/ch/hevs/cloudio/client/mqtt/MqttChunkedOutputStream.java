@@ -0,0 +1,99 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream publishing everything written to it as a sequence of retained messages of a fixed maximal size. The
+ * chunks are published to the topics "{topic}/0", "{topic}/1" and so on as soon as they are full, so the memory used
+ * is bounded by the chunk size and the number of chunks in flight, independent of the total size of the content.
+ */
+class MqttChunkedOutputStream extends OutputStream {
+    // Maximal number of chunks waiting for delivery, the MQTT client itself does not accept more than 10 messages.
+    private static final int WINDOW = 4;
+
+    private final MqttAsyncClient mqtt;
+    private final String topic;
+    private final MqttSerializer serializer;
+    private final MqttStatistics statistics;
+    private final byte[] chunk;
+    private int count = 0;
+    private int chunks = 0;
+    private long size = 0;
+    private final IMqttDeliveryToken[] tokens = new IMqttDeliveryToken[WINDOW];
+
+    public MqttChunkedOutputStream(MqttAsyncClient mqtt, String topic, int chunkSize, MqttSerializer serializer,
+                                   MqttStatistics statistics) {
+        this.mqtt = mqtt;
+        this.topic = topic;
+        this.serializer = serializer;
+        this.statistics = statistics;
+        this.chunk = new byte[chunkSize];
+    }
+
+    public int getChunkCount() {
+        return chunks;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        chunk[count++] = (byte) b;
+        ++size;
+        if (count == chunk.length) {
+            publishChunk();
+        }
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = Math.min(length, chunk.length - count);
+            System.arraycopy(data, offset, chunk, count, n);
+            count += n;
+            size += n;
+            offset += n;
+            length -= n;
+            if (count == chunk.length) {
+                publishChunk();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Publish the last chunk, which is smaller than the others.
+        if (count > 0) {
+            publishChunk();
+        }
+    }
+
+    private void publishChunk() throws IOException {
+        byte[] payload = serializer.acquire(count);
+        System.arraycopy(chunk, 0, payload, 0, count);
+        count = 0;
+
+        try {
+            // Wait for the oldest chunk in flight if the window is full.
+            int slot = chunks % WINDOW;
+            if (tokens[slot] != null) {
+                tokens[slot].waitForCompletion();
+            }
+
+            // The payload is passed as user context in order to return it to the pool once the delivery is complete.
+            tokens[slot] = mqtt.publish(topic + "/" + chunks, payload, 1, true, payload, null);
+            statistics.messagePublished(payload.length);
+            ++chunks;
+        } catch (MqttException exception) {
+            serializer.release(payload);
+            throw new IOException(exception);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock returning the system time cached at its last tick instead of reading the system time on every call. A
+ * background thread updates the cached time at a fixed resolution, so reading the clock costs a single volatile read,
+ * which makes timestamping high-rate updates cheap. In exchange, the clock lags behind the system time by up to the
+ * resolution and all updates happening between two ticks get the same timestamp.
+ *
+ * Every resolution is ticked by a single thread shared by all clocks using it.
+ */
+final class MqttCoarseClock extends Clock {
+    private static final Map<Long, Ticker> tickers = new HashMap<Long, Ticker>();
+
+    private final Ticker ticker;
+    private final ZoneId zone;
+
+    MqttCoarseClock(long resolution) {
+        this(getTicker(Math.max(resolution, 1)), ZoneOffset.UTC);
+    }
+
+    private MqttCoarseClock(Ticker ticker, ZoneId zone) {
+        this.ticker = ticker;
+        this.zone = zone;
+    }
+
+    @Override
+    public long millis() {
+        return ticker.now;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(ticker.now);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new MqttCoarseClock(ticker, zone);
+    }
+
+    private static synchronized Ticker getTicker(long resolution) {
+        Ticker ticker = tickers.get(resolution);
+        if (ticker == null) {
+            ticker = new Ticker(resolution);
+            tickers.put(resolution, ticker);
+        }
+        return ticker;
+    }
+
+    private static class Ticker implements Runnable {
+        private volatile long now = System.currentTimeMillis();
+
+        Ticker(final long resolution) {
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "cloudio-clock-" + resolution + "ms");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            scheduler.scheduleAtFixedRate(this, resolution, resolution, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            now = System.currentTimeMillis();
+        }
+    }
+}
@@ -3,10 +3,14 @@ package ch.hevs.cloudio.client.mqtt;
 import ch.hevs.cloudio.client.AttributeListener;
 import ch.hevs.cloudio.client.UniqueIdentifiable;
 
-import java.util.EmptyStackException;
-import java.util.Stack;
+import java.time.Clock;
 
 interface MqttContainer extends AttributeListener, MqttSynchronizable {
     void containerChanged(MqttContainer container);
-    UniqueIdentifiable locate(Stack<String> path) throws EmptyStackException;
+    void attributeConstraintChanged(MqttAbstractAttribute attribute);
+    void invalidateFragment();
+    void itemAdded(UniqueIdentifiable item);
+    void deliverNotification(Runnable notification);
+    Clock getClock();
+    MqttChangeTracker getChangeTracker();
 }
@@ -6,73 +6,202 @@ import ch.hevs.cloudio.client.EndpointListener;
 import ch.hevs.cloudio.client.Node;
 import ch.hevs.cloudio.client.PublishMode;
 import ch.hevs.cloudio.client.UniqueIdentifiable;
-import ch.hevs.cloudio.client.Uuid;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonSerializable;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.SerializerProvider;
-import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.core.JsonParser;
 import org.eclipse.paho.client.mqttv3.*;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.util.EmptyStackException;
+import java.time.Clock;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
-class MqttEndpoint implements Endpoint, MqttContainer, MqttPublisher, MqttCallback, JsonSerializable {
+class MqttEndpoint implements Endpoint, MqttContainer, MqttPublisher, MqttCallback, MqttSerializable {
     private String uuid;
+    private MqttUuid endpointUuid;
     private MqttNamedItemSet<MqttNode> nodes = new MqttNamedItemSet<MqttNode>();
+    private Map<String, UniqueIdentifiable> topicIndex = new ConcurrentHashMap<String, UniqueIdentifiable>();
     private MqttAsyncClient mqtt = null;
     private MqttConnectOptions options;
     private Properties properties;
+    private MqttSerializer serializer;
+    private MqttStatistics statistics;
+    private MqttInboundDispatcher inbound;
+    private MqttInboundThrottle throttle;
+    private MqttSubscriptions subscriptions = null;
+    private MqttListenerDelivery listenerDelivery = new MqttListenerDelivery();
+    private Clock clock = Clock.systemUTC();
+    private boolean deltaCommit = false;
+    private int onlineChunkSize = 0;
+    private boolean onlineFingerprint = false;
+    private String announcedFingerprint = null;
+    private long structureHash = 0;
+    private boolean structureHashValid = false;
+    private MqttChangeTracker changes = new MqttChangeTracker(this);
+    private ExecutorService announcer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "cloudio-announcer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
     private PublishMode publishMode = PublishMode.OFFLINE;
     private List<EndpointListener> endpointListeners = new LinkedList<EndpointListener>();
 
-    public MqttEndpoint(String uuid, MqttAsyncClient mqtt, MqttConnectOptions options, Properties properties) {
+    public MqttEndpoint(String uuid, MqttAsyncClient mqtt, MqttConnectOptions options, Properties properties,
+                        MqttSerializer serializer, MqttStatistics statistics) {
         this.uuid = uuid;
+        this.endpointUuid = new MqttUuid(this);
         this.mqtt = mqtt;
         this.options = options;
         this.properties = properties;
+        this.serializer = serializer;
+        this.statistics = statistics;
+        this.inbound = new MqttInboundDispatcher(0, 1, MqttInboundDispatcher.OverflowPolicy.BLOCK, false, statistics);
+        this.throttle = new MqttInboundThrottle(0, MqttInboundThrottle.Policy.DROP, statistics);
+    }
+
+    MqttStatistics getStatistics() {
+        return statistics;
+    }
+
+    MqttInboundDispatcher getInboundDispatcher() {
+        return inbound;
+    }
+
+    void setInboundDispatcher(MqttInboundDispatcher inbound) {
+        this.inbound = inbound;
+    }
+
+    MqttInboundThrottle getInboundThrottle() {
+        return throttle;
+    }
+
+    void setInboundThrottle(MqttInboundThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    MqttListenerDelivery getListenerDelivery() {
+        return listenerDelivery;
+    }
+
+    void setListenerDelivery(MqttListenerDelivery listenerDelivery) {
+        this.listenerDelivery = listenerDelivery;
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    boolean isWritableSubscriptions() {
+        return subscriptions != null;
+    }
+
+    void setWritableSubscriptions(boolean writableSubscriptions) {
+        if (writableSubscriptions && subscriptions == null) {
+            subscriptions = new MqttSubscriptions(mqtt);
+
+            // Register the writable attributes created so far.
+            for (UniqueIdentifiable item: topicIndex.values()) {
+                if (item instanceof MqttAbstractAttribute) {
+                    subscriptions.attributeConstraintChanged((MqttAbstractAttribute) item);
+                }
+            }
+        } else if (!writableSubscriptions) {
+            subscriptions = null;
+        }
+    }
+
+    boolean isDeltaCommit() {
+        return deltaCommit;
+    }
+
+    void setDeltaCommit(boolean deltaCommit) {
+        this.deltaCommit = deltaCommit;
+    }
+
+    int getOnlineChunkSize() {
+        return onlineChunkSize;
+    }
+
+    void setOnlineChunkSize(int onlineChunkSize) {
+        this.onlineChunkSize = onlineChunkSize;
+    }
+
+    boolean isOnlineFingerprint() {
+        return onlineFingerprint;
     }
 
-    public String getJson() throws JsonProcessingException {
-        return getJson(this);
+    void setOnlineFingerprint(boolean onlineFingerprint) {
+        this.onlineFingerprint = onlineFingerprint;
     }
 
-    private static String getJson(java.lang.Object object) throws JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        ObjectWriter ow = mapper.writer().withDefaultPrettyPrinter();
-        return ow.writeValueAsString(object);
+    public String getFingerprint() {
+        return MqttStructureHash.toString(getStructureHash());
     }
 
-    private void publishContent(String topic, java.lang.Object object) {
+    public String getJson() throws IOException {
+        // The JSON representation is always available for debugging, even if the endpoint uses a binary codec.
+        MqttSerializer jsonSerializer = serializer;
+        if (!serializer.getCodec().isTextual()) {
+            jsonSerializer = new MqttSerializer(new MqttJsonCodec(true));
+        }
+        byte[] payload = jsonSerializer.serialize(this);
+        String json = new String(payload, "UTF-8");
+        jsonSerializer.release(payload);
+        return json;
+    }
+
+    private void publishContent(String topic, MqttSerializable object, boolean retained) {
         if (publishMode != PublishMode.OFFLINE) {
             try {
-                mqtt.publish(topic, getJson(object).getBytes("UTF-8"), 1, true);
+                publish(topic, object, retained);
             } catch (MqttException e) {
                 e.printStackTrace();
-            } catch (JsonProcessingException e) {
-                e.printStackTrace();
-            } catch (UnsupportedEncodingException e) {
+            } catch (IOException e) {
                 e.printStackTrace();
             }
         }
     }
 
+    void publish(String topic, MqttSerializable object, boolean retained) throws IOException, MqttException {
+        byte[] payload = serializer.serialize(object);
+        try {
+            // The payload is passed as user context in order to return it to the pool once the delivery is complete.
+            mqtt.publish(topic, payload, 1, retained, payload, null);
+            statistics.messagePublished(payload.length);
+        } catch (MqttException exception) {
+            serializer.release(payload);
+            throw exception;
+        } catch (RuntimeException exception) {
+            serializer.release(payload);
+            throw exception;
+        }
+    }
+
     private void connect() throws IOException, MqttException {
         if (mqtt == null || mqtt.isConnected()) return;
 
         mqtt.connect(options, this, new IMqttActionListener() {
             @Override
             public void onSuccess(IMqttToken iMqttToken) {
+                // Announce the endpoint from another thread, as the announcement might have to wait for deliveries
+                // which are only completed by the callback thread we are running on.
+                announcer.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        announce();
+                    }
+                });
+
                 for (EndpointListener listener: endpointListeners) {
                     listener.endpointConnectionStatusChanged(MqttEndpoint.this, true);
                 }
@@ -96,9 +225,67 @@ class MqttEndpoint implements Endpoint, MqttContainer, MqttPublisher, MqttCallba
             }
         });
         mqtt.setCallback(this);
-        mqtt.publish("@online/" + uuid, getJson().getBytes("UTF-8"), 1, true);
-        mqtt.subscribe("@set/" + uuid + "/#", 1);
-        setSynchronized();
+    }
+
+    private synchronized void announce() {
+        // Runs on the announcer thread, so it is synchronized with the commits of the application.
+        try {
+            // If the structure has not changed since the last announcement, the cloud already knows it.
+            final String fingerprint = getFingerprint();
+            if (onlineFingerprint && fingerprint.equals(announcedFingerprint)) {
+                publishFingerprint(fingerprint);
+                subscribe();
+
+                // Publish the changes made while we were offline.
+                commit(this);
+                return;
+            }
+
+            // The whole endpoint is published, so everything is in sync. This is done before serializing the endpoint,
+            // so that elements changed concurrently stay out of sync and are published by the next commit instead of
+            // being lost.
+            setSynchronized();
+
+            if (onlineChunkSize > 0) {
+                // Stream the structure as chunks and publish the manifest once all chunks are published.
+                MqttChunkedOutputStream chunks = new MqttChunkedOutputStream(mqtt, "@online/" + uuid, onlineChunkSize,
+                        serializer, statistics);
+                serializer.serialize(this, chunks);
+                chunks.close();
+                publish("@online/" + uuid, new MqttChunkManifest(chunks.getChunkCount(), chunks.getSize()), true);
+            } else {
+                publish("@online/" + uuid, this, true);
+            }
+            if (onlineFingerprint) {
+                publishFingerprint(fingerprint);
+                announcedFingerprint = fingerprint;
+            }
+            subscribe();
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        } catch (MqttException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    private void subscribe() throws MqttException {
+        if (subscriptions != null) {
+            // Only subscribe to the topics of the elements that can be changed from remote.
+            subscriptions.subscribeAll();
+        } else {
+            mqtt.subscribe(endpointUuid.getSetTopic() + "/#", 1);
+        }
+    }
+
+    private void publishFingerprint(final String fingerprint) throws IOException, MqttException {
+        publish("@online/" + uuid + "/fingerprint", new MqttSerializable() {
+            @Override
+            public void serialize(JsonGenerator gen) throws IOException {
+                gen.writeStartObject();
+                gen.writeStringField("fingerprint", fingerprint);
+                gen.writeEndObject();
+            }
+        }, true);
     }
 
     public void disconnect() {
@@ -119,8 +306,8 @@ class MqttEndpoint implements Endpoint, MqttContainer, MqttPublisher, MqttCallba
     }
 
     @Override
-    public Uuid getUuid() {
-        return new MqttUuid(this);
+    public MqttUuid getUuid() {
+        return endpointUuid;
     }
 
     @Override
@@ -131,6 +318,7 @@ class MqttEndpoint implements Endpoint, MqttContainer, MqttPublisher, MqttCallba
                 node = new MqttNode(nodeName);
                 nodes.addItem(node);
                 node.setParent(this);
+                itemAdded(node);
                 containerChanged(this);
             } catch (MqttDuplicateItemException e) {
                 node = nodes.getItem(nodeName);
@@ -160,7 +348,7 @@ class MqttEndpoint implements Endpoint, MqttContainer, MqttPublisher, MqttCallba
     }
 
     @Override
-    public void commit() {
+    public synchronized void commit() {
         if (publishMode == PublishMode.COMMIT) {
             commit(this);
         }
@@ -181,12 +369,62 @@ class MqttEndpoint implements Endpoint, MqttContainer, MqttPublisher, MqttCallba
 
     @Override
     public void containerChanged(MqttContainer container) {
+        // The structure of the endpoint has changed.
+        structureHashValid = false;
+
         if (publishMode == PublishMode.IMMEDIATE) {
             update(container);
             container.setSynchronized();
         }
     }
 
+    @Override
+    public void attributeConstraintChanged(MqttAbstractAttribute attribute) {
+        // The structure of the endpoint has changed.
+        structureHashValid = false;
+
+        // The attribute may have become writable or read-only.
+        if (attribute.isWritableFromMqtt()) {
+            topicIndex.put(attribute.getUuid().getSetTopic(), attribute);
+        } else if (attribute.getUuid().hasSetTopic()) {
+            topicIndex.remove(attribute.getUuid().getSetTopic(), attribute);
+        }
+        if (subscriptions != null) {
+            subscriptions.attributeConstraintChanged(attribute);
+        }
+    }
+
+    @Override
+    public void itemAdded(UniqueIdentifiable item) {
+        // Index the new element by its @set topic, so an inbound message is resolved using a single lookup. Attributes
+        // are only indexed as long as they can be changed from remote, the others do not need a @set topic at all.
+        if (!(item instanceof MqttAbstractAttribute) || ((MqttAbstractAttribute) item).isWritableFromMqtt()) {
+            topicIndex.put(((MqttUuid) item.getUuid()).getSetTopic(), item);
+        }
+    }
+
+    @Override
+    public void deliverNotification(Runnable notification) {
+        // Deliver the notification as configured, so that slow listeners do not block the processing of messages.
+        listenerDelivery.deliver(notification);
+    }
+
+    @Override
+    public Clock getClock() {
+        // All attributes of the endpoint are timestamped using the same clock.
+        return clock;
+    }
+
+    @Override
+    public MqttChangeTracker getChangeTracker() {
+        return changes;
+    }
+
+    @Override
+    public void invalidateFragment() {
+        // The endpoint itself is never cached, as it is only serialized once per connection.
+    }
+
     @Override
     public boolean hasChanges() {
         return false;
@@ -206,59 +444,114 @@ class MqttEndpoint implements Endpoint, MqttContainer, MqttPublisher, MqttCallba
 
     @Override
     public void setSynchronized() {
+        // Nodes without changes are in sync already.
         for (MqttNode node: nodes) {
-            node.setSynchronized();
+            if (node.getChangeTracker().isChanged()) {
+                node.setSynchronized();
+            }
         }
+
+        // The elements queued for the next commit are in sync now too.
+        changes.purge();
     }
 
     @Override
     public void commit(MqttPublisher publisher) {
-        if (getImmediateChildrenWithChangesCount() > 1) {
-            publisher.update(this);
+        if (changes.isChanged() && getImmediateChildrenWithChangesCount() > 1) {
+            publisher.updateChanges(this);
             setSynchronized();
-        } else {
-            for (MqttNode node: nodes) {
-                node.commit(publisher);
+        }
+
+        // Visit only the elements that went out of sync since the last commit. Elements published in the meantime as
+        // part of one of their parents are in sync again and are skipped.
+        MqttChangeTracker tracker;
+        while ((tracker = changes.poll()) != null) {
+            // Publish the topmost element on the way up to the node which has changes itself or more than one child
+            // with changes, exactly like committing the whole tree from the top would.
+            MqttChangeTracker published = null;
+            for (MqttChangeTracker element = tracker; element != changes && element != null;
+                 element = element.getParent()) {
+                if (element.isOutOfSync() || element.getChangedChildrenCount() > 1) {
+                    published = element;
+                }
+            }
+            if (published != null) {
+                published.getElement().commit(publisher);
+            }
+        }
+    }
+
+    @Override
+    public void serializeChanges(JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        boolean empty = true;
+        for (MqttNode node: nodes) {
+            if (node.getChangeTracker().isChanged()) {
+                if (empty) {
+                    gen.writeObjectFieldStart("nodes");
+                    empty = false;
+                }
+                gen.writeFieldName(node.getName());
+                node.serializeChanges(gen);
             }
         }
+        if (!empty) {
+            gen.writeEndObject();
+        }
+        gen.writeEndObject();
     }
 
     @Override
-    public UniqueIdentifiable locate(Stack<String> path) throws EmptyStackException {
-        if (path.isEmpty()) {
-            return this;
-        } else if ("nodes".equals(path.pop())) {
-            MqttNode node = nodes.getItem(path.pop());
-            if (node != null) {
-                return node.locate(path);
+    public long getStructureHash() {
+        // The hash is only recomputed if the structure has changed since the last time.
+        if (!structureHashValid) {
+            long hash = MqttStructureHash.add(MqttStructureHash.SEED, uuid);
+            for (MqttNode node: nodes) {
+                hash = MqttStructureHash.add(hash, node.getStructureHash());
             }
+            structureHash = hash;
+            structureHashValid = true;
         }
 
-        return null;
+        return structureHash;
     }
 
     /*** MqttPublisher Implementation *********************************************************************************/
 
     public void update(UniqueIdentifiable object) {
-        publishContent("@update/" + object.getUuid(), object);
+        if (object instanceof MqttSerializable) {
+            publishContent(((MqttUuid) object.getUuid()).getUpdateTopic(), (MqttSerializable) object, true);
+        }
+    }
+
+    public void updateChanges(final MqttSynchronizable container) {
+        if (deltaCommit) {
+            // Only publish the changes of the container as a sparse delta document. The delta is merged into the
+            // last known state of the container, so there is nothing to retain.
+            publishContent(((MqttUuid) container.getUuid()).getDeltaTopic(), new MqttSerializable() {
+                @Override
+                public void serialize(JsonGenerator gen) throws IOException {
+                    container.serializeChanges(gen);
+                }
+            }, false);
+        } else {
+            update(container);
+        }
     }
 
 
-    /*** JsonSerializable Implementation ******************************************************************************/
+    /*** MqttSerializable Implementation ******************************************************************************/
 
     @Override
-    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+    public void serialize(JsonGenerator gen) throws IOException {
         gen.writeStartObject();
         if (!nodes.isEmtpy()) {
-            gen.writeObjectField("nodes", nodes);
+            gen.writeFieldName("nodes");
+            nodes.serialize(gen);
         }
         gen.writeEndObject();
     }
 
-    @Override
-    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
-            throws IOException {}
-
 
     /*** MqttCallback Implementation **********************************************************************************/
 
@@ -277,48 +570,149 @@ class MqttEndpoint implements Endpoint, MqttContainer, MqttPublisher, MqttCallba
     }
 
     @Override
-    public void messageArrived(String topic, MqttMessage message) throws Exception {
-        String[] splitTopic = topic.split("/");
-        Stack<String> location = new Stack<String>();
-        for (int i = splitTopic.length - 1; i >= 0; --i) {
-            location.push(splitTopic[i]);
-        }
+    public void messageArrived(String topic, final MqttMessage message) throws Exception {
+        // Get the element identified by the topic.
+        final UniqueIdentifiable item = topicIndex.get(topic);
+
+        if (item instanceof MqttAbstractAttribute) {
+            // Writes to attributes that can not be changed from remote are rejected before looking at the payload.
+            if (!((MqttAbstractAttribute) item).isWritableFromMqtt()) {
+                statistics.inboundMessageRejected();
+                return;
+            }
 
-        try {
-            // The topic has to start with "@set/<UUID>".
-            if ("@set".equals(location.pop())) {
-                if (uuid.equals(location.pop())) {
-                    // Get the object identified by the topic.
-                    final UniqueIdentifiable attribute = locate(location);
-
-                    // Only operations on single attributes are possible!
-                    if (attribute instanceof MqttBooleanAttribute) {
-                        ObjectMapper mapper = new ObjectMapper();
-                        final Boolean value = mapper.readValue(message.getPayload(), Boolean.class);
-                        ((MqttBooleanAttribute) attribute).setValueFromMqtt(value);
-                    } else if (attribute instanceof MqttIntegerAttribute) {
-                        ObjectMapper mapper = new ObjectMapper();
-                        final Integer value = mapper.readValue(message.getPayload(), Integer.class);
-                        ((MqttIntegerAttribute) attribute).setValueFromMqtt(value);
-                    } else if (attribute instanceof MqttNumberAttribute) {
-                        ObjectMapper mapper = new ObjectMapper();
-                        final Double value = mapper.readValue(message.getPayload(), Double.class);
-                        ((MqttNumberAttribute) attribute).setValueFromMqtt(value);
-                    } else if (attribute instanceof MqttStringAttribute) {
-                        ObjectMapper mapper = new ObjectMapper();
-                        final String value = mapper.readValue(message.getPayload(), String.class);
-                        ((MqttStringAttribute) attribute).setValueFromMqtt(value);
+            // Decode and apply the value on the inbound lane of the attribute, off the MQTT callback thread.
+            new AttributeSetTask((MqttAbstractAttribute) item, message).dispatch();
+        } else if (item instanceof MqttObjectContainer) {
+            // A node or an object, the payload contains the values of many attributes to apply at once. Batches
+            // are processed on the lane of the container and, as they may contain different attributes, never
+            // conflated.
+            inbound.dispatch(((MqttUuid) item.getUuid()).getTopic(), new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final JsonParser parser = serializer.getCodec().createParser(message.getPayload());
+                        if (!setValuesFromMqtt((MqttObjectContainer) item, parser)) {
+                            statistics.inboundMessageRejected();
+                        }
+                    } catch (IOException e) {
+                        // The payload is not a valid document for the container.
+                        statistics.inboundMessageInvalid();
+                    } catch (RuntimeException e) {
+                        // A failing listener must not stop the processing of the messages that follow.
+                        e.printStackTrace();
                     }
                 }
+            }, false);
+        } else {
+            // Unknown topic.
+            statistics.inboundMessageRejected();
+        }
+    }
+
+    private boolean setValuesFromMqtt(MqttObjectContainer container, JsonParser parser) throws IOException {
+        // Decode all values of the batch.
+        final MqttSetBatch batch = new MqttSetBatch();
+        container.readValuesFromMqtt(parser, batch);
+
+        // The values are only applied if all of them are valid.
+        if (!batch.validate()) {
+            return false;
+        }
+
+        // Throttled batches are dropped as a whole and counted as throttled instead of rejected.
+        if (!throttle.admit(batch.getAttributes())) {
+            return true;
+        }
+
+        if (!batch.isEmpty()) {
+            try {
+                batch.apply();
+            } finally {
+                throttle.done(batch.getAttributes(), true);
+            }
+            listenerDelivery.deliver(new Runnable() {
+                @Override
+                public void run() {
+                    batch.notifyListeners();
+                }
+            });
+
+            // Publish all changes of the container at once. Everything published is in sync afterwards, including
+            // changes of other attributes of the container made since the last commit.
+            if (publishMode == PublishMode.IMMEDIATE) {
+                if (deltaCommit) {
+                    updateChanges(container);
+                    container.setSynchronized();
+                } else {
+                    // The whole container is published, it is marked as in sync before being serialized, so that
+                    // changes made concurrently stay out of sync and are not lost.
+                    container.setSynchronized();
+                    update(container);
+                }
             }
-        } catch (Exception e) {
-            // We silently ignore the message if the topic is invalid.
-            e.printStackTrace();
         }
+
+        return true;
     }
 
     @Override
     public void deliveryComplete(IMqttDeliveryToken iMqttDeliveryToken) {
-        // No action necessary.
+        // The MQTT client does not need the payload anymore, so the array can be reused.
+        if (iMqttDeliveryToken.getUserContext() instanceof byte[]) {
+            serializer.release((byte[]) iMqttDeliveryToken.getUserContext());
+        }
+    }
+
+    // Decodes and applies a value received for a single attribute on the inbound lane of the attribute.
+    private class AttributeSetTask implements Runnable {
+        private final MqttAbstractAttribute attribute;
+        private final MqttMessage message;
+        private final Runnable deferred = new Runnable() {
+            @Override
+            public void run() {
+                apply();
+            }
+        };
+
+        AttributeSetTask(MqttAbstractAttribute attribute, MqttMessage message) {
+            this.attribute = attribute;
+            this.message = message;
+        }
+
+        void dispatch() {
+            // Only the newest value matters, so the message can be conflated with a pending one for the same attribute.
+            inbound.dispatch(attribute.getUuid().getTopic(), this, true);
+        }
+
+        @Override
+        public void run() {
+            // Attributes changed too often from remote are throttled, the message is either dropped or applied by the
+            // throttle once the interval has elapsed.
+            if (throttle.admit(attribute, deferred)) {
+                apply();
+            }
+        }
+
+        private void apply() {
+            boolean applied = false;
+            try {
+                // Parse the payload using the codec of the endpoint and let the attribute decode it.
+                final JsonParser parser = serializer.getCodec().createParser(message.getPayload());
+                applied = attribute.setValueFromMqtt(parser);
+                if (!applied) {
+                    statistics.inboundMessageRejected();
+                }
+            } catch (IOException e) {
+                // The payload does not contain a valid value.
+                statistics.inboundMessageInvalid();
+            } catch (RuntimeException e) {
+                // A failing listener must not stop the processing of the messages that follow.
+                e.printStackTrace();
+            } finally {
+                // Let the throttle process the messages received in the meantime.
+                throttle.done(attribute, applied);
+            }
+        }
     }
 }
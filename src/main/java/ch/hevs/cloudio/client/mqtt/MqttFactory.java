@@ -20,10 +20,9 @@ import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.KeyStore;
+import java.time.Clock;
 import java.util.Properties;
 
-// TODO: Move from Jackson databind to Jackson Stream implementation.
-
 public class MqttFactory extends ch.hevs.cloudio.client.Factory {
 
     // MQTT options.
@@ -35,6 +34,54 @@ public class MqttFactory extends ch.hevs.cloudio.client.Factory {
     private static final String MQTT_PERSISTENCE_PROPERTY       = "ch.hevs.cloudio.client.persistence";
     private static final String MQTT_PERSISTENCE_DEFAULT        = MQTT_PERSISTENCE_FILE;
 
+    // Serialization options.
+    private static final String CODEC_PROPERTY                  = "ch.hevs.cloudio.client.codec";
+    private static final String CODEC_DEFAULT                   = MqttJsonCodec.NAME;
+    private static final String JSON_PRETTY_PRINT_PROPERTY      = "ch.hevs.cloudio.client.json.prettyPrint";
+    private static final String JSON_PRETTY_PRINT_DEFAULT       = "false";
+    private static final String COMMIT_DELTA_PROPERTY           = "ch.hevs.cloudio.client.commit.delta";
+    private static final String COMMIT_DELTA_DEFAULT            = "false";
+    private static final String BUFFER_POOL_SIZE_PROPERTY       = "ch.hevs.cloudio.client.bufferPool.size";
+    private static final String BUFFER_POOL_SIZE_DEFAULT        = "1048576";
+    private static final String ONLINE_CHUNK_SIZE_PROPERTY      = "ch.hevs.cloudio.client.online.chunkSize";
+    private static final String ONLINE_CHUNK_SIZE_DEFAULT       = "0";
+    private static final String ONLINE_FINGERPRINT_PROPERTY     = "ch.hevs.cloudio.client.online.fingerprint";
+    private static final String ONLINE_FINGERPRINT_DEFAULT      = "false";
+
+    // Inbound options.
+    private static final String INBOUND_THREADS_PROPERTY        = "ch.hevs.cloudio.client.inbound.threads";
+    private static final String INBOUND_THREADS_DEFAULT         = "0";
+    private static final String INBOUND_QUEUE_SIZE_PROPERTY     = "ch.hevs.cloudio.client.inbound.queueSize";
+    private static final String INBOUND_QUEUE_SIZE_DEFAULT      = "1024";
+    private static final String INBOUND_OVERFLOW_PROPERTY       = "ch.hevs.cloudio.client.inbound.overflowPolicy";
+    private static final String INBOUND_OVERFLOW_DEFAULT        = "BLOCK";
+    private static final String INBOUND_CONFLATE_PROPERTY       = "ch.hevs.cloudio.client.inbound.conflate";
+    private static final String INBOUND_CONFLATE_DEFAULT        = "false";
+    private static final String INBOUND_MIN_INTERVAL_PROPERTY   = "ch.hevs.cloudio.client.inbound.minInterval";
+    private static final String INBOUND_MIN_INTERVAL_DEFAULT    = "0";
+    private static final String INBOUND_THROTTLE_PROPERTY       = "ch.hevs.cloudio.client.inbound.throttlePolicy";
+    private static final String INBOUND_THROTTLE_DEFAULT        = "DROP";
+    private static final String INBOUND_SUBSCRIPTION_PROPERTY   = "ch.hevs.cloudio.client.inbound.subscription";
+    private static final String INBOUND_SUBSCRIPTION_ENDPOINT   = "endpoint";
+    private static final String INBOUND_SUBSCRIPTION_WRITABLE   = "writable";
+    private static final String INBOUND_SUBSCRIPTION_DEFAULT    = INBOUND_SUBSCRIPTION_ENDPOINT;
+
+    // Listener options.
+    private static final String LISTENER_DELIVERY_PROPERTY      = "ch.hevs.cloudio.client.listener.delivery";
+    private static final String LISTENER_DELIVERY_DEFAULT       = "INLINE";
+    private static final String LISTENER_THREADS_PROPERTY       = "ch.hevs.cloudio.client.listener.threads";
+    private static final String LISTENER_THREADS_DEFAULT        = "1";
+    private static final String LISTENER_QUEUE_SIZE_PROPERTY    = "ch.hevs.cloudio.client.listener.queueSize";
+    private static final String LISTENER_QUEUE_SIZE_DEFAULT     = "1024";
+
+    // Clock options.
+    private static final String CLOCK_PROPERTY                  = "ch.hevs.cloudio.client.clock";
+    private static final String CLOCK_SYSTEM                    = "system";
+    private static final String CLOCK_COARSE                    = "coarse";
+    private static final String CLOCK_DEFAULT                   = CLOCK_SYSTEM;
+    private static final String CLOCK_RESOLUTION_PROPERTY       = "ch.hevs.cloudio.client.clock.resolution";
+    private static final String CLOCK_RESOLUTION_DEFAULT        = "10";
+
     // SSL options.
     private static final String ENDPOINT_IDENTITY_FILE_TYPE = "PKCS12";
     private static final String ENDPOINT_IDENTITY_MANAGER_TYPE = "SunX509";
@@ -68,6 +115,95 @@ public class MqttFactory extends ch.hevs.cloudio.client.Factory {
      *     The persistence to use for the MQTT client. Possible values are <b>"memory"</b> where the data is saved in
      *     memory or <b>"file"</b> where the messages are queued on the filesystem. Default is <b>"file"</b>.
      *     <br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.codec</b><br>
+     *     The encoding of the message payloads, used for both published and received messages. Possible values are
+     *     <b>"json"</b> for JSON text or <b>"cbor"</b> for the compact binary CBOR encoding. Note that the cloud.iO
+     *     backend has to be configured to use the same encoding for the endpoint. Default is <b>"json"</b>.
+     *     <br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.json.prettyPrint</b><br>
+     *     If <b>"true"</b>, all JSON messages are indented in order to be readable by humans. This is intended for
+     *     debugging only, as it increases the size of every message considerably. Default is <b>"false"</b>.
+     *     <br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.commit.delta</b><br>
+     *     If <b>"true"</b>, containers (the endpoint, nodes and objects) with more than one change are published in
+     *     PublishMode.COMMIT as sparse delta documents to the topic <b>@delta/{container UUID}</b> instead of being
+     *     published completely to the <b>@update</b> topic. A delta document has the structure of the container, but
+     *     only includes changed attributes and objects and has to be merged into the last known state of the
+     *     container (JSON merge patch semantics). Default is <b>"false"</b>.<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.bufferPool.size</b><br>
+     *     Maximal number of bytes of payload arrays kept for reuse once the MQTT client has delivered a message.
+     *     Arrays are reused for payloads of exactly the same length only. A value of <b>0</b> disables the recycling
+     *     of payload arrays. Default is <b>1048576</b> (1 MiB).<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.online.chunkSize</b><br>
+     *     If greater than 0, the structure of the endpoint is not published as a single <b>@online/{UUID}</b> message
+     *     on connect, but streamed in chunks of at most the given number of bytes to the topics
+     *     <b>@online/{UUID}/0</b>, <b>@online/{UUID}/1</b> and so on. Once all chunks are published, a manifest
+     *     containing the number of chunks and the total size is published to <b>@online/{UUID}</b>. This keeps the
+     *     memory needed to announce very large endpoints bounded. Default is <b>0</b> (no chunks).<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.online.fingerprint</b><br>
+     *     If <b>"true"</b>, a fingerprint (stable hash of nodes, interfaces, conformities and attribute names, types
+     *     and constraints) of the endpoint's structure is published to <b>@online/{UUID}/fingerprint</b> together
+     *     with the structure. On reconnect, if the structure has not changed since the last announcement, only the
+     *     fingerprint and the changes made while offline are published instead of the whole structure. Default is
+     *     <b>"false"</b>.<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.inbound.threads</b><br>
+     *     Number of threads processing received @set messages (decoding, validation and listener notification).
+     *     Messages are distributed over the threads by topic, so all messages for the same attribute are processed in
+     *     order while different attributes are processed in parallel. Messages setting many attributes of a node or an
+     *     object at once are processed in the order of the messages to that node or object. With <b>0</b>, the
+     *     messages are processed directly on the callback thread of the MQTT client. Default is <b>0</b>.<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.inbound.queueSize</b><br>
+     *     Maximal number of received messages waiting to be processed per inbound thread. Default is <b>1024</b>.
+     *     <br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.inbound.overflowPolicy</b><br>
+     *     What to do with a received message if the queue of its inbound thread is full. Possible values are
+     *     <b>"BLOCK"</b> where the MQTT client waits until there is space in the queue, <b>"DROP_NEWEST"</b> where the
+     *     received message is dropped and <b>"DROP_OLDEST"</b> where the oldest queued message is dropped. Dropped
+     *     messages are counted in the statistics of the endpoint. Default is <b>"BLOCK"</b>.<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.inbound.conflate</b><br>
+     *     If <b>"true"</b>, only the newest received value per attribute waiting to be processed is kept: a new @set
+     *     message for an attribute replaces the one still waiting in the queue, so intermediate values of bursts are
+     *     neither decoded, nor validated, nor notified to the listeners. Messages setting many attributes at once
+     *     are never conflated, nor are the messages received before them replaced anymore. Conflated messages are
+     *     counted in the statistics of the endpoint. Has no effect if there are no inbound threads. Default is
+     *     <b>"false"</b>.<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.inbound.minInterval</b><br>
+     *     Minimal time in milliseconds between two changes of the same attribute from remote. Attributes can override
+     *     it using Attribute.throttle(). Default is <b>0</b> (no limit).<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.inbound.throttlePolicy</b><br>
+     *     What to do with a received message changing an attribute before its minimal interval has elapsed. Possible
+     *     values are <b>"DROP"</b> where the message is dropped and <b>"DEFER"</b> where the newest of these messages
+     *     is processed by a dedicated thread once the interval has elapsed. Messages changing many attributes at once
+     *     are always dropped if one of the attributes is throttled. Throttled messages are counted in the statistics
+     *     of the endpoint. Default is <b>"DROP"</b>.<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.inbound.subscription</b><br>
+     *     Which @set topics the endpoint subscribes to. Possible values are <b>"endpoint"</b> where all messages
+     *     below <b>@set/{UUID}/#</b> are received and messages for read-only attributes are rejected by the endpoint
+     *     or <b>"writable"</b> where only the topics of the PARAMETER and SET_POINT attributes and of the nodes and
+     *     objects containing them are subscribed. The subscriptions are updated as attributes are created or their
+     *     constraint changes. Default is <b>"endpoint"</b>.<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.listener.delivery</b><br>
+     *     How attribute listeners are notified about changes received from remote. Possible values are
+     *     <b>"INLINE"</b> where the listeners are called by the thread processing the received message,
+     *     <b>"THREADS"</b> where they are called by a fixed number of listener threads and <b>"VIRTUAL"</b> where
+     *     every notification is delivered by a new virtual thread (Java 21 and newer, older runtimes use listener
+     *     threads instead). Asynchronous delivery keeps listeners doing blocking work from delaying the processing of
+     *     the following messages, but with more than one thread the order of the notifications is not guaranteed.
+     *     Default is <b>"INLINE"</b>.<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.listener.threads</b><br>
+     *     Number of threads delivering the notifications if the delivery is <b>"THREADS"</b>. Default is <b>1</b>.
+     *     <br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.listener.queueSize</b><br>
+     *     Maximal number of notifications not yet delivered by asynchronous delivery. If reached, the processing of
+     *     received messages waits until a notification has been delivered. Default is <b>1024</b>.<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.clock</b><br>
+     *     Clock used to timestamp attribute updates that do not specify a timestamp. Possible values are
+     *     <b>"system"</b> where the system time is read on every update, <b>"coarse"</b> where the system time is
+     *     cached and updated periodically by a background thread, which makes timestamping high-rate updates cheaper
+     *     but lets updates within the same period share the same timestamp, or the fully qualified name of a
+     *     <i>java.time.Clock</i> subclass with a public default constructor. Default is <b>"system"</b>.<br><br></li>
+     *     <li><b>ch.hevs.cloudio.client.clock.resolution</b><br>
+     *     Period in milliseconds at which the <b>"coarse"</b> clock is updated. Default is <b>10</b>.<br><br></li>
      *     <li><b>ch.hevs.cloudio.client.ssl.clientCert</b><br>
      *     Location (URI) of the ssl client certificate and key bundled into a PKCS12 file (*.p12). Supported URI
      *     schemes are <b>file:</b>, which searches the identity file on the local filesystem or <b>classpath:</b>
@@ -134,9 +270,89 @@ public class MqttFactory extends ch.hevs.cloudio.client.Factory {
             persistence = new MqttDefaultFilePersistence();
         }
 
+        // Create the payload codec used for all messages of the endpoint.
+        MqttPayloadCodec codec = null;
+        String codecName = properties.getProperty(CODEC_PROPERTY, CODEC_DEFAULT);
+        if (codecName.equals(MqttJsonCodec.NAME)) {
+            codec = new MqttJsonCodec(Boolean.parseBoolean(
+                    properties.getProperty(JSON_PRETTY_PRINT_PROPERTY, JSON_PRETTY_PRINT_DEFAULT)));
+        } else if (codecName.equals(MqttCborCodec.NAME)) {
+            codec = new MqttCborCodec();
+        } else {
+            throw new IllegalArgumentException("Unsupported payload codec '" + codecName + "'");
+        }
+
         // Create MQTT client.
         MqttAsyncClient mqtt = new MqttAsyncClient(properties.getProperty(MQTT_HOST_URI_PROPERTY), uuid, persistence);
-        return new MqttEndpoint(uuid, mqtt, options, properties);
+        MqttStatistics statistics = new MqttStatistics();
+        MqttBufferPool pool = new MqttBufferPool(Long.parseLong(
+                properties.getProperty(BUFFER_POOL_SIZE_PROPERTY, BUFFER_POOL_SIZE_DEFAULT)), statistics);
+        MqttEndpoint endpoint = new MqttEndpoint(uuid, mqtt, options, properties, new MqttSerializer(codec, pool),
+                statistics);
+
+        // Configure the publishing behaviour of the endpoint.
+        endpoint.setDeltaCommit(Boolean.parseBoolean(
+                properties.getProperty(COMMIT_DELTA_PROPERTY, COMMIT_DELTA_DEFAULT)));
+        endpoint.setOnlineChunkSize(Integer.parseInt(
+                properties.getProperty(ONLINE_CHUNK_SIZE_PROPERTY, ONLINE_CHUNK_SIZE_DEFAULT)));
+        endpoint.setOnlineFingerprint(Boolean.parseBoolean(
+                properties.getProperty(ONLINE_FINGERPRINT_PROPERTY, ONLINE_FINGERPRINT_DEFAULT)));
+
+        // Configure the processing of received messages.
+        String subscription = properties.getProperty(INBOUND_SUBSCRIPTION_PROPERTY, INBOUND_SUBSCRIPTION_DEFAULT);
+        if (subscription.equals(INBOUND_SUBSCRIPTION_WRITABLE)) {
+            endpoint.setWritableSubscriptions(true);
+        } else if (!subscription.equals(INBOUND_SUBSCRIPTION_ENDPOINT)) {
+            throw new IllegalArgumentException("Unsupported subscription mode '" + subscription + "'");
+        }
+        endpoint.setInboundDispatcher(new MqttInboundDispatcher(
+                Integer.parseInt(properties.getProperty(INBOUND_THREADS_PROPERTY, INBOUND_THREADS_DEFAULT)),
+                Integer.parseInt(properties.getProperty(INBOUND_QUEUE_SIZE_PROPERTY, INBOUND_QUEUE_SIZE_DEFAULT)),
+                MqttInboundDispatcher.OverflowPolicy.valueOf(
+                        properties.getProperty(INBOUND_OVERFLOW_PROPERTY, INBOUND_OVERFLOW_DEFAULT)),
+                Boolean.parseBoolean(properties.getProperty(INBOUND_CONFLATE_PROPERTY, INBOUND_CONFLATE_DEFAULT)),
+                statistics));
+        endpoint.setInboundThrottle(new MqttInboundThrottle(
+                Long.parseLong(properties.getProperty(INBOUND_MIN_INTERVAL_PROPERTY, INBOUND_MIN_INTERVAL_DEFAULT)),
+                MqttInboundThrottle.Policy.valueOf(
+                        properties.getProperty(INBOUND_THROTTLE_PROPERTY, INBOUND_THROTTLE_DEFAULT)),
+                statistics));
+        endpoint.setListenerDelivery(new MqttListenerDelivery(
+                MqttListenerDelivery.Mode.valueOf(
+                        properties.getProperty(LISTENER_DELIVERY_PROPERTY, LISTENER_DELIVERY_DEFAULT)),
+                Integer.parseInt(properties.getProperty(LISTENER_THREADS_PROPERTY, LISTENER_THREADS_DEFAULT)),
+                Integer.parseInt(properties.getProperty(LISTENER_QUEUE_SIZE_PROPERTY, LISTENER_QUEUE_SIZE_DEFAULT))));
+
+        // Configure the clock used to timestamp the attribute updates.
+        String clock = properties.getProperty(CLOCK_PROPERTY, CLOCK_DEFAULT);
+        if (clock.equals(CLOCK_COARSE)) {
+            endpoint.setClock(new MqttCoarseClock(Long.parseLong(
+                    properties.getProperty(CLOCK_RESOLUTION_PROPERTY, CLOCK_RESOLUTION_DEFAULT))));
+        } else if (!clock.equals(CLOCK_SYSTEM)) {
+            try {
+                endpoint.setClock(Class.forName(clock).asSubclass(Clock.class).getDeclaredConstructor().newInstance());
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalArgumentException(
+                        "Unsupported clock '" + clock + "' for property " + CLOCK_PROPERTY, e);
+            }
+        }
+
+        return endpoint;
+    }
+
+    /**
+     * Returns the runtime statistics of the given endpoint.
+     *
+     * @param endpoint                  Endpoint created by this factory.
+     * @return                          Statistics of the endpoint.
+     * @throws IllegalArgumentException If the endpoint was not created by a MqttFactory.
+     */
+    public static MqttStatistics getStatistics(Endpoint endpoint) throws IllegalArgumentException {
+        if (endpoint instanceof MqttEndpoint) {
+            return ((MqttEndpoint) endpoint).getStatistics();
+        } else {
+            throw new IllegalArgumentException("Endpoint was not created by a MqttFactory");
+        }
     }
 
     private SSLSocketFactory createSocketFactory(String endpointUuid, Properties properties) throws Exception {
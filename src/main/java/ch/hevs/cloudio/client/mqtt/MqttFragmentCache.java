@@ -0,0 +1,98 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Keeps the encoded representation of a container in order to avoid serializing unchanged subtrees again for every
+ * publish. The fragment is captured from the buffer of the MqttSerializer while the container is serialized and
+ * spliced back as is the next time, as long as it was not invalidated in between. The container is responsible for
+ * invalidating the cache whenever itself or any of its children changes.
+ *
+ * Containers are serialized by different threads (commit, announcer, inbound lanes) while their children may change
+ * concurrently. Every invalidation increments the generation of the cache, a fragment is only captured if the
+ * generation did not change since the serialization of the container started, as it may contain outdated values
+ * otherwise.
+ */
+class MqttFragmentCache {
+    private byte[] fragment = null;
+    private MqttPayloadCodec codec = null;
+    private int generation = 0;
+
+    public synchronized boolean isValid() {
+        return fragment != null;
+    }
+
+    public synchronized void invalidate() {
+        fragment = null;
+        codec = null;
+
+        // Kept positive, as a negative mark means that the fragment can not be captured.
+        generation = (generation + 1) & Integer.MAX_VALUE;
+    }
+
+    // Writes the cached fragment to the generator. Returns false if the cache can not be used.
+    public boolean write(JsonGenerator gen) throws IOException {
+        MqttSerializer.Buffer buffer = getBuffer(gen);
+        byte[] fragment;
+        synchronized (this) {
+            if (buffer == null || buffer.getCodec() != codec) {
+                return false;
+            }
+            fragment = this.fragment;
+        }
+
+        if (fragment != null) {
+            buffer.getCodec().writeFragment(gen, buffer, fragment);
+            return true;
+        }
+        return false;
+    }
+
+    // Marks the start of the serialization of the container. Returns the generation of the cache in the upper and
+    // the start of the container in the buffer in the lower 32 bits, or -1 if the fragment can not be captured.
+    public long begin(JsonGenerator gen) throws IOException {
+        MqttSerializer.Buffer buffer = getBuffer(gen);
+        if (buffer != null) {
+            gen.flush();
+            synchronized (this) {
+                return ((long) generation << 32) | buffer.size();
+            }
+        }
+
+        return -1;
+    }
+
+    // Captures everything the container has written since begin() as the new fragment, unless the cache has been
+    // invalidated in between.
+    public void end(JsonGenerator gen, long mark) throws IOException {
+        MqttSerializer.Buffer buffer = getBuffer(gen);
+        if (buffer != null && mark >= 0) {
+            gen.flush();
+
+            // The generator writes the separator in front of the value, which is not part of the fragment.
+            int start = (int) mark;
+            while (start < buffer.size() && buffer.getCodec().isValueSeparator(buffer.get(start))) {
+                ++start;
+            }
+
+            synchronized (this) {
+                if (generation == (int) (mark >>> 32)) {
+                    fragment = buffer.copy(start, buffer.size());
+                    codec = buffer.getCodec();
+                }
+            }
+        }
+    }
+
+    private static MqttSerializer.Buffer getBuffer(JsonGenerator gen) {
+        // Fragments are only supported if the generator writes into the buffer of a MqttSerializer.
+        java.lang.Object target = gen.getOutputTarget();
+        if (target instanceof MqttSerializer.Buffer && ((MqttSerializer.Buffer) target).getCodec().supportsFragments()) {
+            return (MqttSerializer.Buffer) target;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,178 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes inbound messages outside of the callback thread of the MQTT client. The messages are distributed over a
+ * number of lanes by their key (the UUID of the addressed element), each lane is processed by a single thread. Thus
+ * all messages for the same attribute are processed in the order they arrived, while messages for different attributes
+ * can be processed in parallel. A message setting many attributes at once is addressed to their container and so
+ * processed on the lane of the container, in the order of the messages to that container. Every lane has a bounded
+ * queue, the overflow policy defines what happens if a queue is full.
+ *
+ * If conflation is enabled, only the newest pending message per key is kept for messages dispatched as conflatable: a
+ * new message replaces the message waiting for the same key instead of being queued after it. A message that is not
+ * conflatable ends the conflation of the messages waiting before it on the same lane, as replacing them by newer
+ * messages would apply those before it.
+ *
+ * With 0 lanes, messages are processed directly on the calling thread.
+ */
+class MqttInboundDispatcher {
+    enum OverflowPolicy {
+        // The callback thread of the MQTT client waits until there is space in the queue.
+        BLOCK,
+
+        // The message that does not fit into the queue is dropped.
+        DROP_NEWEST,
+
+        // The oldest message in the queue is dropped in order to make space for the new message.
+        DROP_OLDEST
+    }
+
+    private ThreadPoolExecutor[] lanes;
+    private boolean conflate;
+    private Map<Object, DrainTask> pending = new ConcurrentHashMap<Object, DrainTask>();
+    private MqttStatistics statistics;
+
+    MqttInboundDispatcher(int laneCount, int queueSize, OverflowPolicy policy, boolean conflate,
+                          MqttStatistics statistics) {
+        this.conflate = conflate;
+        this.statistics = statistics;
+        lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; ++i) {
+            final String name = "cloudio-inbound-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, createOverflowHandler(policy));
+        }
+    }
+
+    void dispatch(Object key, Runnable task, boolean conflatable) {
+        if (lanes.length == 0) {
+            task.run();
+            return;
+        }
+
+        ThreadPoolExecutor lane = lanes[(key.hashCode() & 0x7FFFFFFF) % lanes.length];
+        if (conflate && conflatable) {
+            DrainTask drain;
+            synchronized (this) {
+                // If there is already a message pending for the key, the new message replaces it and will be processed
+                // by the already queued drain task.
+                drain = pending.get(key);
+                if (drain != null) {
+                    drain.task = task;
+                    statistics.inboundMessageConflated();
+                    return;
+                }
+                drain = new DrainTask(lane, key, task);
+                pending.put(key, drain);
+            }
+            lane.execute(drain);
+        } else {
+            if (conflate) {
+                // The messages pending on the lane are processed before this one, so they must not be replaced anymore.
+                synchronized (this) {
+                    for (Iterator<DrainTask> iterator = pending.values().iterator(); iterator.hasNext();) {
+                        if (iterator.next().lane == lane) {
+                            iterator.remove();
+                        }
+                    }
+                }
+            }
+            lane.execute(task);
+        }
+    }
+
+    private void dropped(Runnable task) {
+        // If a drain task is dropped, the pending message it would have processed is dropped too.
+        if (task instanceof DrainTask) {
+            synchronized (this) {
+                pending.remove(((DrainTask) task).key, task);
+            }
+        }
+        statistics.inboundMessageDropped();
+    }
+
+    private RejectedExecutionHandler createOverflowHandler(OverflowPolicy policy) {
+        switch (policy) {
+            case DROP_NEWEST:
+                return new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable task, ThreadPoolExecutor lane) {
+                        dropped(task);
+                    }
+                };
+
+            case DROP_OLDEST:
+                return new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable task, ThreadPoolExecutor lane) {
+                        if (!lane.isShutdown()) {
+                            // Drop the oldest message and retry.
+                            Runnable oldest = lane.getQueue().poll();
+                            if (oldest != null) {
+                                dropped(oldest);
+                            }
+                            lane.execute(task);
+                        } else {
+                            dropped(task);
+                        }
+                    }
+                };
+
+            default:
+                return new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable task, ThreadPoolExecutor lane) {
+                        try {
+                            // Wait for space in the queue.
+                            if (!lane.isShutdown()) {
+                                lane.getQueue().put(task);
+                                return;
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        dropped(task);
+                    }
+                };
+        }
+    }
+
+    private class DrainTask implements Runnable {
+        private final ThreadPoolExecutor lane;
+        private final Object key;
+        private Runnable task;
+
+        DrainTask(ThreadPoolExecutor lane, Object key, Runnable task) {
+            this.lane = lane;
+            this.key = key;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            // Process the newest message pending for the key, messages arriving from now on are queued again.
+            Runnable newest;
+            synchronized (MqttInboundDispatcher.this) {
+                pending.remove(key, this);
+                newest = task;
+            }
+            newest.run();
+        }
+    }
+}
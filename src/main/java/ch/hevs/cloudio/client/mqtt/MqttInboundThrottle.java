@@ -0,0 +1,195 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how often attributes can be changed from remote. Every attribute has a minimal interval between two applied
+ * changes, either its own (Attribute.throttle()) or the default interval of the endpoint. A message received before the
+ * interval has elapsed is either dropped or deferred: the newest deferred message per attribute is applied by the
+ * throttle thread as soon as the interval has elapsed, while the older deferred messages are dropped.
+ *
+ * Messages for single attributes and messages setting many attributes at once are both checked by the inbound lane
+ * processing them, right before their values are applied. An admitted message holds the slot of its attributes until
+ * done() is called, messages received in the meantime are handled as if the interval had not elapsed. Thus values of
+ * the same attribute are never applied concurrently by the throttle thread and the inbound lanes, and a deferred value
+ * is never applied after a newer one. The interval only starts once a value has actually been applied, so messages
+ * rejected because of their type, their value or the constraint of the attribute do not delay the following ones.
+ * Messages setting many attributes at once are only accepted if none of their attributes is throttled, they are
+ * dropped otherwise, as deferring them could overwrite newer values of other attributes.
+ */
+class MqttInboundThrottle {
+    enum Policy {
+        // Messages received too early are dropped.
+        DROP,
+
+        // The newest message received too early is applied once the interval has elapsed.
+        DEFER
+    }
+
+    private long defaultInterval;
+    private Policy policy;
+    private MqttStatistics statistics;
+    private Map<MqttAbstractAttribute, Slot> slots = new ConcurrentHashMap<MqttAbstractAttribute, Slot>();
+    private ScheduledExecutorService scheduler = null;
+
+    MqttInboundThrottle(long defaultInterval, Policy policy, MqttStatistics statistics) {
+        this.defaultInterval = defaultInterval;
+        this.policy = policy;
+        this.statistics = statistics;
+    }
+
+    // Returns true if the attribute can be changed now, done() has to be called once the message is processed.
+    // Otherwise the message is dropped or, if deferred, apply is run by the throttle thread once the interval has
+    // elapsed, in which case apply has to call done() too.
+    boolean admit(MqttAbstractAttribute attribute, Runnable apply) {
+        // Unthrottled attributes do not need any bookkeeping.
+        long interval = getInterval(attribute);
+        if (interval <= 0) {
+            return true;
+        }
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            Slot slot = getSlot(attribute);
+            if (slot.isAvailable(now, interval)) {
+                slot.busy = true;
+                return true;
+            }
+
+            if (policy == Policy.DEFER) {
+                // Replace the deferred message, which is dropped, or schedule the message if it is the first one.
+                if (slot.deferred != null) {
+                    statistics.inboundMessageThrottled();
+                }
+                slot.deferred = apply;
+                slot.schedule(now, interval);
+            } else {
+                statistics.inboundMessageThrottled();
+            }
+            return false;
+        }
+    }
+
+    // Returns true if all attributes can be changed now, the message is dropped otherwise.
+    boolean admit(List<MqttAbstractAttribute> attributes) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            for (MqttAbstractAttribute attribute: attributes) {
+                long interval = getInterval(attribute);
+                if (interval > 0 && !getSlot(attribute).isAvailable(now, interval)) {
+                    statistics.inboundMessageThrottled();
+                    return false;
+                }
+            }
+            for (MqttAbstractAttribute attribute: attributes) {
+                if (getInterval(attribute) > 0) {
+                    getSlot(attribute).busy = true;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Releases the slot of the attribute once an admitted message has been processed. If its value has been applied,
+    // the interval of the attribute starts now.
+    void done(MqttAbstractAttribute attribute, boolean applied) {
+        Slot slot = slots.get(attribute);
+        if (slot != null) {
+            long now = System.nanoTime();
+            synchronized (this) {
+                slot.busy = false;
+                if (applied) {
+                    slot.apply(now);
+                }
+
+                // A message deferred while the value was being applied is scheduled now.
+                if (slot.deferred != null) {
+                    slot.schedule(now, getInterval(attribute));
+                }
+            }
+        }
+    }
+
+    void done(List<MqttAbstractAttribute> attributes, boolean applied) {
+        for (MqttAbstractAttribute attribute: attributes) {
+            done(attribute, applied);
+        }
+    }
+
+    private long getInterval(MqttAbstractAttribute attribute) {
+        long interval = attribute.getThrottleInterval();
+        return TimeUnit.MILLISECONDS.toNanos(interval >= 0 ? interval : defaultInterval);
+    }
+
+    private Slot getSlot(MqttAbstractAttribute attribute) {
+        Slot slot = slots.get(attribute);
+        if (slot == null) {
+            slot = new Slot();
+            slots.put(attribute, slot);
+        }
+        return slot;
+    }
+
+    private ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "cloudio-throttle");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler;
+    }
+
+    private class Slot implements Runnable {
+        private boolean used = false;
+        private long applied;
+        private boolean busy = false;
+        private boolean scheduled = false;
+        private Runnable deferred = null;
+
+        boolean isAvailable(long now, long interval) {
+            return !busy && deferred == null && (!used || now - applied >= interval);
+        }
+
+        void apply(long now) {
+            used = true;
+            applied = now;
+        }
+
+        void schedule(long now, long interval) {
+            // The deferred message is scheduled once no other message is being applied.
+            if (!scheduled && !busy) {
+                scheduled = true;
+                long delay = used ? applied + interval - now : 0;
+                getScheduler().schedule(this, Math.max(delay, 0), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public void run() {
+            // The interval has elapsed, apply the newest deferred message. It holds the slot while being applied, so
+            // newer messages received in the meantime are deferred and applied after it.
+            Runnable apply;
+            synchronized (MqttInboundThrottle.this) {
+                scheduled = false;
+                if (busy || deferred == null) {
+                    return;
+                }
+                apply = deferred;
+                deferred = null;
+                busy = true;
+            }
+            apply.run();
+        }
+    }
+}
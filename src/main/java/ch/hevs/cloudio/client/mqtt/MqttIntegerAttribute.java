@@ -1,15 +1,20 @@
 package ch.hevs.cloudio.client.mqtt;
 
-import ch.hevs.cloudio.client.*;
+import ch.hevs.cloudio.client.Attribute;
+import ch.hevs.cloudio.client.AttributeConstraint;
+import ch.hevs.cloudio.client.AttributeValidator;
+import ch.hevs.cloudio.client.IntegerAttribute;
+import ch.hevs.cloudio.client.IntegerValidator;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.JsonSerializable;
-import com.fasterxml.jackson.databind.SerializerProvider;
-import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.core.JsonParser;
 
 import java.io.IOException;
 
-class MqttIntegerAttribute extends MqttAbstractAttribute<Integer> implements JsonSerializable {
-    private Integer value;
+class MqttIntegerAttribute extends MqttAbstractAttribute<Integer> implements IntegerAttribute {
+    // The value is stored unboxed, hasValue is false as long as the attribute has no value (null).
+    private int value;
+    private boolean hasValue = false;
+    private Integer boxed = null;
 
     public MqttIntegerAttribute(String name) {
         super(name);
@@ -20,29 +25,59 @@ class MqttIntegerAttribute extends MqttAbstractAttribute<Integer> implements Jso
         return Integer.class;
     }
 
-    void setValueFromMqtt(Integer value) {
-        // Only PARAMETER and SET_POINT can be changed from remote.
-        if (getConstraint() == AttributeConstraint.PARAMETER || getConstraint() == AttributeConstraint.SET_POINT) {
-            // Let the validator check the value before actually applying it.
-            if (getValidator() == null || getValidator().validate(this, value)) {
-                // Apply new value and update timestamp with current system timestamp.
-                this.value = value;
-                this.setTimestamp(System.currentTimeMillis() / 1000f);
+    @Override
+    boolean setValueFromMqtt(JsonParser parser) throws IOException {
+        return setValueFromMqtt(MqttValueDecoder.decodeInteger(parser));
+    }
 
-                // The value is out of sync.
-                this.setOutOfSync();
+    @Override
+    Integer decodeValueFromMqtt(JsonParser parser) throws IOException {
+        return MqttValueDecoder.decodeInteger(parser);
+    }
 
-                // Inform all attribute listeners about the change.
-                for (AttributeListener listener : getListeners()) {
-                    listener.attributeChanged(this);
-                }
+    @Override
+    boolean isValidFromMqtt(Integer value) {
+        return value != null && isValid(value);
+    }
 
-                // Inform parent about the change.
-                if (getParent() != null) {
-                    getParent().attributeChanged(this);
-                }
-            }
+    @Override
+    void applyValueFromMqtt(Integer value) {
+        applyValueFromMqtt(value.intValue());
+    }
+
+    boolean setValueFromMqtt(int value) {
+        // Only PARAMETER and SET_POINT can be changed from remote, let the validator check the value before actually
+        // applying it.
+        if (isWritableFromMqtt() && isValid(value)) {
+            applyValueFromMqtt(value);
+            changedFromMqtt();
+            return true;
         }
+
+        return false;
+    }
+
+    private void applyValueFromMqtt(int value) {
+        // Apply new value and update timestamp with current system timestamp, the value is out of sync now.
+        this.value = value;
+        this.hasValue = true;
+        this.setTimestamp(currentTimeMillis());
+        this.setOutOfSync();
+    }
+
+    private void assign(Integer value) {
+        this.value = value != null ? value : 0;
+        this.hasValue = value != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean isValid(int value) {
+        // Primitive validators get the value without boxing it.
+        AttributeValidator validator = getValidator();
+        if (validator instanceof IntegerValidator) {
+            return ((IntegerValidator) validator).validate(this, value);
+        }
+        return validator == null || validator.validate(this, value);
     }
 
 
@@ -51,24 +86,38 @@ class MqttIntegerAttribute extends MqttAbstractAttribute<Integer> implements Jso
 
     @Override
     public Integer getValue() {
-        return value;
+        // The boxed value is kept until the value changes, so reading an unchanged value does not allocate.
+        if (!hasValue) {
+            return null;
+        }
+        Integer boxed = this.boxed;
+        if (boxed == null || boxed != value) {
+            boxed = value;
+            this.boxed = boxed;
+        }
+        return boxed;
     }
 
     @Override
     public void setValue(Integer value) throws IllegalArgumentException, IllegalAccessError {
         // Call method with current timestamp in milliseconds.
-        setValue(value, (float)System.currentTimeMillis() / 1000f);
+        update(value, currentTimeMillis());
     }
 
     @Override
     public void setValue(Integer value, float timestamp) throws IllegalArgumentException, IllegalAccessError {
+        // Timestamps are stored in milliseconds.
+        update(value, toMillis(timestamp));
+    }
+
+    private void update(Integer value, long timestamp) throws IllegalArgumentException, IllegalAccessError {
         // Only attributes with constraint STATUS, MEASURE and initial value for all others can be updated from endpoint
         // context.
         if (getConstraint() == AttributeConstraint.STATUS || getConstraint() == AttributeConstraint.MEASURE) {
             // First validate value before actually applying it.
             if (getValidator() == null || getValidator().validate(this, value)) {
                 // Update value, timestamp and mark the attribute as out of sync.
-                this.value = value;
+                assign(value);
                 this.setTimestamp(timestamp);
                 this.setOutOfSync();
 
@@ -88,10 +137,11 @@ class MqttIntegerAttribute extends MqttAbstractAttribute<Integer> implements Jso
 
     @Override
     public Attribute initialize(Integer value, float timestamp) throws IllegalArgumentException, IllegalStateException {
-        if (this.value == null) {
+        if (!hasValue) {
             if (getValidator() == null || getValidator().validate(this, value)) {
-                this.value = value;
-                this.setTimestamp(timestamp);
+                assign(value);
+                this.setTimestamp(toMillis(timestamp));
+                this.invalidateParentFragment();
             } else {
                 throw new IllegalArgumentException("Validator " + getValidator().toString() + " rejected value " +
                         (value == null ? "null" : value.toString()));
@@ -104,36 +154,78 @@ class MqttIntegerAttribute extends MqttAbstractAttribute<Integer> implements Jso
     }
 
 
-    /*** JsonSerializable implementation ******************************************************************************/
+    /*** IntegerAttribute Implementation ******************************************************************************/
+
+    @Override
+    public boolean hasValue() {
+        return hasValue;
+    }
+
+    @Override
+    public int getIntValue() {
+        return value;
+    }
+
+    @Override
+    public void setValue(int value) throws IllegalArgumentException, IllegalAccessError {
+        // Call method with current timestamp in milliseconds.
+        setValueAtMillis(value, currentTimeMillis());
+    }
 
     @Override
-    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+    public void setValueAtMillis(int value, long timestamp) throws IllegalArgumentException, IllegalAccessError {
+        // Same as setValue(Integer, float), but the value is never boxed.
+        if (getConstraint() == AttributeConstraint.STATUS || getConstraint() == AttributeConstraint.MEASURE) {
+            // First validate value before actually applying it.
+            if (isValid(value)) {
+                // Update value, timestamp and mark the attribute as out of sync.
+                this.value = value;
+                this.hasValue = true;
+                this.setTimestamp(timestamp);
+                this.setOutOfSync();
+
+                // Notify parent (object) about the change.
+                if (getParent() != null) {
+                    getParent().attributeChanged(this);
+                }
+            } else {
+                throw new IllegalArgumentException("Validator " + getValidator().toString() + " rejected value " +
+                        value);
+            }
+        } else {
+            throw new IllegalAccessError("Only attributes with constraints STATUS, MEASURE and STATIC " +
+                    "(only for initial values) can be set during runtime.");
+        }
+    }
+
+
+    /*** MqttSerializable implementation ******************************************************************************/
+
+    @Override
+    public void serialize(JsonGenerator gen) throws IOException {
         // Start attribute object.
         gen.writeStartObject();
 
         // Write datatype.
-        gen.writeObjectField("type", "Integer");
+        gen.writeStringField("type", "Integer");
 
         // Write constraint.
-        gen.writeObjectField("constraint", getConstraint());
+        gen.writeStringField("constraint", getConstraint().toString());
 
         // If the constraint is STATIC, the timestamp is null otherwise include the timestamp.
         if (getConstraint() != AttributeConstraint.STATIC && getTimestamp() != 0) {
-            gen.writeNumberField("timestamp", getTimestamp());
+            MqttNumberWriter.writeTimestampField(gen, "timestamp", getTimestamp());
         }
 
-        // Try to serialize the value.
-        try {
-            gen.writeObjectField("value", value);
-        } catch (Exception exception) {
-            gen.writeString("ERROR: Attribute value not serializable!");
+        // Write the value.
+        gen.writeFieldName("value");
+        if (hasValue) {
+            MqttNumberWriter.writeNumber(gen, value);
+        } else {
+            gen.writeNull();
         }
 
         // Write object end tag.
         gen.writeEndObject();
     }
-
-    @Override
-    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
-            throws IOException {}
 }
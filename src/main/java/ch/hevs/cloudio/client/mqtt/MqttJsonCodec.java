@@ -0,0 +1,78 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes the payloads as UTF-8 JSON text. This is the default codec.
+ */
+class MqttJsonCodec implements MqttPayloadCodec {
+    static final String NAME = "json";
+
+    private final JsonFactory factory = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final boolean prettyPrint;
+
+    public MqttJsonCodec(boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
+    }
+
+    public boolean isPrettyPrint() {
+        return prettyPrint;
+    }
+
+
+    /*** MqttPayloadCodec Implementation ******************************************************************************/
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isTextual() {
+        return true;
+    }
+
+    @Override
+    public JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8);
+        if (prettyPrint) {
+            generator.setPrettyPrinter(new DefaultPrettyPrinter((String)null));
+        } else {
+            // No separator between two consecutive root level values, as every value is a payload on its own.
+            generator.setRootValueSeparator(null);
+        }
+        return generator;
+    }
+
+    @Override
+    public JsonParser createParser(byte[] payload) throws IOException {
+        return factory.createParser(payload);
+    }
+
+    @Override
+    public boolean supportsFragments() {
+        // The indentation of a fragment depends on its location, so they can not be reused if pretty printing.
+        return !prettyPrint;
+    }
+
+    @Override
+    public boolean isValueSeparator(byte b) {
+        return b == ':' || b == ',';
+    }
+
+    @Override
+    public void writeFragment(JsonGenerator gen, OutputStream out, byte[] fragment) throws IOException {
+        // An empty raw value makes the generator write the separator and account for the value, the fragment itself
+        // is written directly to the stream after the generator has been flushed.
+        gen.writeRawValue("");
+        gen.flush();
+        out.write(fragment);
+    }
+}
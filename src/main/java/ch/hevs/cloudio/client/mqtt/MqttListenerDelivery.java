@@ -0,0 +1,103 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Delivers the notifications of attribute listeners about changes received from remote. By default the listeners are
+ * called directly by the thread processing the received message. Listeners doing blocking work (writing to a
+ * fieldbus for example) would stop the processing of all following messages, so the notifications can be delivered
+ * asynchronously instead, either by a fixed number of threads or by a new virtual thread per notification on runtimes
+ * supporting them (Java 21 and newer).
+ *
+ * The number of notifications waiting to be delivered is bounded, if the limit is reached the thread processing the
+ * received messages waits until a notification has been delivered. With more than one thread and with virtual
+ * threads, the notifications are not necessarily delivered in the order the changes were received.
+ */
+class MqttListenerDelivery {
+    enum Mode {
+        // Listeners are called by the thread processing the received message.
+        INLINE,
+
+        // Listeners are called by a fixed number of threads.
+        THREADS,
+
+        // Listeners are called by a new virtual thread per notification, if not supported by the runtime, THREADS is
+        // used instead.
+        VIRTUAL
+    }
+
+    private Executor executor = null;
+    private Semaphore pending;
+
+    MqttListenerDelivery() {
+        this(Mode.INLINE, 0, 0);
+    }
+
+    MqttListenerDelivery(Mode mode, int threadCount, int queueSize) {
+        if (mode == Mode.VIRTUAL) {
+            executor = createVirtualThreadExecutor();
+        }
+        if (mode != Mode.INLINE && executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(threadCount, 1), new ThreadFactory() {
+                private int count = 0;
+
+                @Override
+                public synchronized Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "cloudio-listener-" + count++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        pending = new Semaphore(Math.max(queueSize, 1));
+    }
+
+    boolean isAsynchronous() {
+        return executor != null;
+    }
+
+    void deliver(final Runnable notification) {
+        if (executor == null) {
+            notification.run();
+            return;
+        }
+
+        // Wait if too many notifications are not delivered yet. If interrupted, the notification is delivered
+        // directly in order to not lose it.
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            notification.run();
+            return;
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    notification.run();
+                } catch (RuntimeException e) {
+                    // A failing listener must not prevent the delivery of the notifications that follow.
+                    e.printStackTrace();
+                } finally {
+                    pending.release();
+                }
+            }
+        });
+    }
+
+    private static Executor createVirtualThreadExecutor() {
+        // Virtual threads are looked up by reflection, as the client has to run on Java 8 too.
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) factory.invoke(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
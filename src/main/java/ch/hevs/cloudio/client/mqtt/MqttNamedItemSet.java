@@ -2,49 +2,80 @@ package ch.hevs.cloudio.client.mqtt;
 
 import ch.hevs.cloudio.client.NamedItem;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.JsonSerializable;
-import com.fasterxml.jackson.databind.SerializerProvider;
-import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
 
-class MqttNamedItemSet<T extends NamedItem> implements JsonSerializable, Iterable<T> {
-    private List<T> items = new LinkedList<T>();
+/**
+ * Set of named items keeping the order in which the items were added, which is the order they are serialized in. The
+ * items are stored in an array, small sets are searched linearly while sets with more than COMPACT_SIZE items use an
+ * additional index by name, so that looking up and adding items does not depend on the number of items.
+ */
+class MqttNamedItemSet<T extends NamedItem> implements MqttSerializable, Iterable<T> {
+    // Maximal number of items searched linearly, bigger sets are indexed.
+    private static final int COMPACT_SIZE = 8;
+    private static final NamedItem[] EMPTY = new NamedItem[0];
 
+    private NamedItem[] items = EMPTY;
+    private int size = 0;
+    private Map<String, T> index = null;
+
+    @SuppressWarnings("unchecked")
     public T getItem(String itemName) {
-        for (T item: items) {
-            if (item.getName().equals(itemName))
-                return item;
+        if (index != null) {
+            return index.get(itemName);
+        }
+
+        for (int i = 0; i < size; ++i) {
+            if (items[i].getName().equals(itemName))
+                return (T) items[i];
         }
         return null;
     }
 
     public void addItem(T item) throws MqttDuplicateItemException {
         if (getItem(item.getName()) == null) {
-            items.add(item);
+            // Grow the array if needed, starting small as most sets contain only a few items.
+            if (size == items.length) {
+                items = Arrays.copyOf(items, Math.max(4, size * 2));
+            }
+            items[size++] = item;
+
+            // Index the items as soon as the set is too big to be searched linearly.
+            if (index != null) {
+                index.put(item.getName(), item);
+            } else if (size > COMPACT_SIZE) {
+                index = new HashMap<String, T>();
+                for (T indexed: this) {
+                    index.put(indexed.getName(), indexed);
+                }
+            }
         } else {
             throw new MqttDuplicateItemException();
         }
     }
 
     public boolean isEmtpy() {
-        return items.isEmpty();
+        return size == 0;
     }
 
 
-    /*** JsonSerializable Implementation ******************************************************************************/
+    /*** MqttSerializable Implementation ******************************************************************************/
 
     @Override
-    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+    public void serialize(JsonGenerator gen) throws IOException {
         gen.writeStartObject();
-        for (T item: items) {
-            if (item instanceof JsonSerializable) {
-                gen.writeObjectField(item.getName(), item);
+        for (T item: this) {
+            if (item instanceof MqttSerializable) {
+                gen.writeFieldName(item.getName());
+                ((MqttSerializable) item).serialize(gen);
             } else {
                 gen.writeStringField(item.getName(), "NOT SERIALIZABLE");
             }
@@ -52,26 +83,39 @@ class MqttNamedItemSet<T extends NamedItem> implements JsonSerializable, Iterabl
         gen.writeEndObject();
     }
 
-    @Override
-    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
-            throws IOException {}
-
 
     /*** Iterable<T> Implementation ***********************************************************************************/
     @Override
     public Iterator<T> iterator() {
-        return items.iterator();
+        return new Iterator<T>() {
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (position >= size) {
+                    throw new NoSuchElementException();
+                }
+                return (T) items[position++];
+            }
+        };
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void forEach(Consumer<? super T> action) {
-        for (T item: items) {
-            action.accept(item);
+        for (int i = 0; i < size; ++i) {
+            action.accept((T) items[i]);
         }
     }
 
     @Override
     public Spliterator<T> spliterator() {
-        return items.spliterator();
+        return Spliterators.spliterator(iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL);
     }
 }
@@ -3,16 +3,14 @@ package ch.hevs.cloudio.client.mqtt;
 import ch.hevs.cloudio.client.Attribute;
 import ch.hevs.cloudio.client.Node;
 import ch.hevs.cloudio.client.UniqueIdentifiable;
-import ch.hevs.cloudio.client.Uuid;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.JsonSerializable;
-import com.fasterxml.jackson.databind.SerializerProvider;
-import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.core.JsonParser;
 
 import java.io.IOException;
+import java.time.Clock;
 import java.util.*;
 
-class MqttNode implements Node, MqttObjectContainer, JsonSerializable {
+class MqttNode implements Node, MqttObjectContainer, MqttSerializable {
 
     private MqttEndpoint parent = null;
     private String name;
@@ -21,7 +19,10 @@ class MqttNode implements Node, MqttObjectContainer, JsonSerializable {
 
     private MqttNamedItemSet<MqttObject> objects = new MqttNamedItemSet<MqttObject>();
 
-    private boolean outOfSync = true;
+    private MqttChangeTracker changes = new MqttChangeTracker(this, true);
+    private MqttFragmentCache fragment = new MqttFragmentCache();
+    private long structureHash = 0;
+    private boolean structureHashValid = false;
 
     public MqttNode(String name, String... implementedInterfaces) {
         this.name = name;
@@ -34,6 +35,12 @@ class MqttNode implements Node, MqttObjectContainer, JsonSerializable {
 
     void setParent(MqttEndpoint parent) {
         this.parent = parent;
+
+        // The UUID and the topics depend on the parent, so they are computed once the element is attached.
+        uuid = parent != null ? new MqttUuid(this) : null;
+
+        // The parent counts its children with changes.
+        changes.attach(parent != null ? parent.getChangeTracker() : null);
     }
 
 
@@ -44,14 +51,10 @@ class MqttNode implements Node, MqttObjectContainer, JsonSerializable {
         return name;
     }
 
-    private Uuid uuid = null;
+    private MqttUuid uuid = null;
     @Override
-    public Uuid getUuid() {
-        // Lazy initialisation of UUID.
-        if (uuid == null) {
-            uuid = new MqttUuid(this);
-        }
-        return new MqttUuid(this);
+    public MqttUuid getUuid() {
+        return uuid;
     }
 
     @Override
@@ -69,7 +72,9 @@ class MqttNode implements Node, MqttObjectContainer, JsonSerializable {
 
         // Has the number of implemented interfaces changed?
         if (count  != this.implementedInterfaces.size()) {
-            outOfSync = true;
+            changes.setOutOfSync();
+            invalidateFragment();
+            structureHashValid = false;
             parent.containerChanged(this);
         }
 
@@ -89,8 +94,11 @@ class MqttNode implements Node, MqttObjectContainer, JsonSerializable {
 
                 // Set this instance as the parent of the object.
                 object.setParent(this);
+                itemAdded(object);
+                invalidateFragment();
 
                 // Notify my parent that this container has changes.
+                structureHashValid = false;
                 if (parent != null) {
                     parent.containerChanged(this);
                 }
@@ -115,46 +123,109 @@ class MqttNode implements Node, MqttObjectContainer, JsonSerializable {
 
     @Override
     public void containerChanged(MqttContainer container) {
-        // Relay the event to the parent.
+        // The structure of a child has changed, so our structure has changed too. Relay the event to the parent.
+        structureHashValid = false;
         parent.containerChanged(container);
     }
 
     @Override
-    public boolean hasChanges() {
-        // Does the node has changes?
-        return outOfSync;
+    public void attributeConstraintChanged(MqttAbstractAttribute attribute) {
+        // Our structure has changed. Relay the event to the parent.
+        structureHashValid = false;
+        parent.attributeConstraintChanged(attribute);
     }
 
     @Override
-    public int getImmediateChildrenWithChangesCount() {
-        int changes = 0;
+    public void itemAdded(UniqueIdentifiable item) {
+        // Relay the event to the parent.
+        parent.itemAdded(item);
+    }
 
-        // Count the number of objects with changes.
-        for (MqttObject object: objects) {
-            if (object.hasChanges() || object.doChildrenHaveChanges()) {
-                ++changes;
+    @Override
+    public void deliverNotification(Runnable notification) {
+        // Relay the notification to the parent.
+        parent.deliverNotification(notification);
+    }
+
+    @Override
+    public Clock getClock() {
+        // Use the clock of the endpoint, elements not yet part of an endpoint use the system clock.
+        return parent != null ? parent.getClock() : Clock.systemUTC();
+    }
+
+    @Override
+    public void readValuesFromMqtt(JsonParser parser, MqttSetBatch batch) throws IOException {
+        // The document has the structure of the node, but contains only the values of the attributes to change.
+        MqttSetBatch.startObject(parser);
+        String field;
+        while ((field = MqttSetBatch.nextField(parser)) != null) {
+            if ("objects".equals(field)) {
+                MqttSetBatch.startObject(parser);
+                String name;
+                while ((name = MqttSetBatch.nextField(parser)) != null) {
+                    MqttObject object = objects.getItem(name);
+                    if (object == null) {
+                        throw MqttSetBatch.invalidDocument(parser, "Unknown object '" + name + "'");
+                    }
+                    object.readValuesFromMqtt(parser, batch);
+                }
+            } else {
+                throw MqttSetBatch.invalidDocument(parser, "Unexpected field '" + field + "'");
             }
         }
+    }
 
+    @Override
+    public MqttChangeTracker getChangeTracker() {
         return changes;
     }
 
+    @Override
+    public void invalidateFragment() {
+        // Invalidate our cached representation and the one of our parent, as it contains ours.
+        fragment.invalidate();
+        if (parent != null) {
+            parent.invalidateFragment();
+        }
+    }
+
+    @Override
+    public boolean hasChanges() {
+        // Does the node has changes?
+        return changes.isOutOfSync();
+    }
+
+    @Override
+    public int getImmediateChildrenWithChangesCount() {
+        // The objects with changes are counted as they change.
+        return changes.getChangedChildrenCount();
+    }
+
     @Override
     public void setSynchronized() {
         // Set the object himself as in sync.
-        outOfSync = false;
+        changes.setSynchronized();
 
-        // Set all objects to be in sync.
-        for (MqttObject object: objects) {
-            object.setSynchronized();
+        // Set all objects with changes to be in sync, the others are in sync already.
+        if (getImmediateChildrenWithChangesCount() > 0) {
+            for (MqttObject object: objects) {
+                if (object.getChangeTracker().isChanged()) {
+                    object.setSynchronized();
+                }
+            }
         }
     }
 
     @Override
     public void commit(MqttPublisher publisher) {
+        // Nothing to do if neither the node nor its objects have changes.
+        if (!changes.isChanged()) {
+            return;
+        }
+
         // If the node has changes or more than 1 objects have changes, publish the whole node.
         if (hasChanges() || getImmediateChildrenWithChangesCount() > 1) {
-            publisher.update(this);
+            publisher.updateChanges(this);
             setSynchronized();
         } else {
             // Call the commit method for all objects.
@@ -165,46 +236,89 @@ class MqttNode implements Node, MqttObjectContainer, JsonSerializable {
     }
 
     @Override
-    public UniqueIdentifiable locate(Stack<String> path) throws EmptyStackException {
-        // If the path is empty now, it refers to the node itself.
-        if (path.isEmpty()) {
-            return this;
-        } else {
-            // We only can locate objects at this hierarchy level.
-            if ("objects".equals(path.pop())) {
-                MqttObject object = objects.getItem(path.pop());
+    public void serializeChanges(JsonGenerator gen) throws IOException {
+        // Start object.
+        gen.writeStartObject();
+
+        // The implemented interfaces are only included if the node itself has changed.
+        if (hasChanges() && !implementedInterfaces.isEmpty()) {
+            gen.writeArrayFieldStart("implements");
+            for (String implementedInterface: implementedInterfaces) {
+                gen.writeString(implementedInterface);
+            }
+            gen.writeEndArray();
+        }
 
-                // If the object exists continue, otherwise return null.
-                if (object != null) {
-                    return object.locate(path);
+        // Write the changes of all objects with changes.
+        boolean empty = true;
+        for (MqttObject object: objects) {
+            if (object.getChangeTracker().isChanged()) {
+                if (empty) {
+                    gen.writeObjectFieldStart("objects");
+                    empty = false;
                 }
+                gen.writeFieldName(object.getName());
+                object.serializeChanges(gen);
             }
         }
+        if (!empty) {
+            gen.writeEndObject();
+        }
 
-        return null;
+        // End object.
+        gen.writeEndObject();
     }
 
-    /*** JsonSerializable Implementation ******************************************************************************/
     @Override
-    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+    public long getStructureHash() {
+        // The hash is only recomputed if the structure has changed since the last time.
+        if (!structureHashValid) {
+            long hash = MqttStructureHash.add(MqttStructureHash.SEED, name);
+            for (String implementedInterface: implementedInterfaces) {
+                hash = MqttStructureHash.add(hash, implementedInterface);
+            }
+            hash = MqttStructureHash.add(hash, -1);
+            for (MqttObject object: objects) {
+                hash = MqttStructureHash.add(hash, object.getStructureHash());
+            }
+            structureHash = hash;
+            structureHashValid = true;
+        }
+
+        return structureHash;
+    }
+
+    /*** MqttSerializable Implementation ******************************************************************************/
+    @Override
+    public void serialize(JsonGenerator gen) throws IOException {
+        // Use the cached representation if nothing has changed since the last serialization.
+        if (fragment.write(gen)) {
+            return;
+        }
+        long fragmentMark = fragment.begin(gen);
+
         // Start object.
         gen.writeStartObject();
 
         // Include all implemented interfaces.
         if (!implementedInterfaces.isEmpty()) {
-            gen.writeObjectField("implements", implementedInterfaces);
+            gen.writeArrayFieldStart("implements");
+            for (String implementedInterface: implementedInterfaces) {
+                gen.writeString(implementedInterface);
+            }
+            gen.writeEndArray();
         }
 
         // Write all objects.
         if (!objects.isEmtpy()) {
-            gen.writeObjectField("objects", objects);
+            gen.writeFieldName("objects");
+            objects.serialize(gen);
         }
 
         // End object.
         gen.writeEndObject();
-    }
 
-    @Override
-    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
-            throws IOException {}
+        // Cache the representation for the next time.
+        fragment.end(gen, fragmentMark);
+    }
 }
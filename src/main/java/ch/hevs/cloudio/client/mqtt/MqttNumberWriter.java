@@ -0,0 +1,132 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Writes attribute values and timestamps without going through Double.toString() and Float.toString(), which are
+ * slow and allocate a string for every number written.
+ *
+ * A number v is written as the integer m = v * 10^k with the smallest k for which m / 10^k gives back exactly v. This
+ * is the decimal representation with the fewest fractional digits that parses back to the same value. As long as m
+ * is below 2^53 and k is at most 22, both m and 10^k are exact doubles and the division is correctly rounded, so
+ * parsing the decimal gives exactly the same result as the division. Numbers outside of this range (very large or
+ * very small numbers, numbers needing 17 significant digits, NaN and infinity) are written by the generator itself.
+ * Binary codecs get the number as is, as they do not need any formatting at all.
+ */
+final class MqttNumberWriter {
+    private static final int MAX_FRACTION_DIGITS = 22;
+    private static final long MAX_EXACT_INTEGER = 1L << 53;
+    private static final double[] POWERS_OF_TEN = new double[MAX_FRACTION_DIGITS + 1];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; ++i) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    // Large enough for the sign, the decimal point and up to 22 fractional digits.
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[48];
+        }
+    };
+
+    private MqttNumberWriter() {}
+
+    static void writeNumber(JsonGenerator gen, int value) throws IOException {
+        // Jackson writes integers directly into its output buffer, there is nothing to gain here.
+        gen.writeNumber(value);
+    }
+
+    static void writeNumber(JsonGenerator gen, double value) throws IOException {
+        if (gen.canWriteBinaryNatively() || gen.isEnabled(JsonGenerator.Feature.WRITE_NUMBERS_AS_STRINGS) ||
+                !write(gen, value, false)) {
+            gen.writeNumber(value);
+        }
+    }
+
+    static void writeNumber(JsonGenerator gen, float value) throws IOException {
+        if (gen.canWriteBinaryNatively() || gen.isEnabled(JsonGenerator.Feature.WRITE_NUMBERS_AS_STRINGS) ||
+                !write(gen, value, true)) {
+            gen.writeNumber(value);
+        }
+    }
+
+    static void writeTimestampField(JsonGenerator gen, String fieldName, long timestamp) throws IOException {
+        // Timestamps are stored in milliseconds but published in seconds since epoch. Every millisecond timestamp
+        // (below 2^53) has an exact decimal representation with at most 3 fractional digits, so no precision is lost.
+        gen.writeFieldName(fieldName);
+        writeNumber(gen, timestamp / 1000.0);
+    }
+
+    private static boolean write(JsonGenerator gen, double value, boolean isFloat) throws IOException {
+        // NaN, infinity and negative zero are left to the generator.
+        double magnitude = Math.abs(value);
+        if (!(magnitude < MAX_EXACT_INTEGER) || (value == 0 && 1 / value < 0)) {
+            return false;
+        }
+
+        // Floats are parsed from the decimal representation directly, while we check the round trip by converting
+        // the double result to float. These two can only differ if the double lies exactly in the middle of two
+        // floats or if the float is subnormal, so subnormals are left to the generator and midpoints are skipped.
+        if (isFloat && value != 0 && magnitude < Float.MIN_NORMAL) {
+            return false;
+        }
+
+        // Search the smallest number of fractional digits representing the value exactly.
+        for (int k = 0; k <= MAX_FRACTION_DIGITS; ++k) {
+            double scaled = magnitude * POWERS_OF_TEN[k];
+            if (!(scaled < MAX_EXACT_INTEGER)) {
+                return false;
+            }
+
+            long digits = Math.round(scaled);
+            double parsed = digits / POWERS_OF_TEN[k];
+            if (isFloat) {
+                if ((Double.doubleToRawLongBits(parsed) & 0x1FFFFFFFL) == 0x10000000L) {
+                    continue;
+                }
+                parsed = (float) parsed;
+            }
+
+            if (parsed == magnitude) {
+                write(gen, value < 0, digits, k);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void write(JsonGenerator gen, boolean negative, long digits, int fractionDigits)
+            throws IOException {
+        char[] buffer = BUFFER.get();
+
+        // Fill the buffer from the end, starting with the fraction (at least one digit as in "1.0").
+        int position = buffer.length;
+        if (fractionDigits == 0) {
+            buffer[--position] = '0';
+        } else {
+            for (int i = 0; i < fractionDigits; ++i) {
+                buffer[--position] = (char) ('0' + digits % 10);
+                digits /= 10;
+            }
+        }
+        buffer[--position] = '.';
+
+        // Then the integral part.
+        do {
+            buffer[--position] = (char) ('0' + digits % 10);
+            digits /= 10;
+        } while (digits != 0);
+
+        if (negative) {
+            buffer[--position] = '-';
+        }
+
+        gen.writeRawValue(buffer, position, buffer.length - position);
+    }
+}
@@ -3,17 +3,13 @@ package ch.hevs.cloudio.client.mqtt;
 import ch.hevs.cloudio.client.Attribute;
 import ch.hevs.cloudio.client.AttributeConstraint;
 import ch.hevs.cloudio.client.UniqueIdentifiable;
-import ch.hevs.cloudio.client.Uuid;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.JsonSerializable;
-import com.fasterxml.jackson.databind.SerializerProvider;
-import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.core.JsonParser;
 
 import java.io.IOException;
-import java.util.EmptyStackException;
-import java.util.Stack;
+import java.time.Clock;
 
-class MqttObject implements ch.hevs.cloudio.client.Object, MqttObjectContainer, JsonSerializable {
+class MqttObject implements ch.hevs.cloudio.client.Object, MqttObjectContainer, MqttSerializable {
 
     private MqttObjectContainer parent = null;
     private String name;
@@ -23,7 +19,10 @@ class MqttObject implements ch.hevs.cloudio.client.Object, MqttObjectContainer,
     private MqttNamedItemSet<MqttObject> objects = new MqttNamedItemSet<MqttObject>();
     private MqttNamedItemSet<MqttAbstractAttribute> attributes = new MqttNamedItemSet<MqttAbstractAttribute>();
 
-    private boolean outOfSync = true;
+    private MqttChangeTracker changes = new MqttChangeTracker(this, true);
+    private MqttFragmentCache fragment = new MqttFragmentCache();
+    private long structureHash = 0;
+    private boolean structureHashValid = false;
 
     protected MqttObject(String name) {
         this.name = name;
@@ -35,21 +34,16 @@ class MqttObject implements ch.hevs.cloudio.client.Object, MqttObjectContainer,
 
     void setParent(MqttObjectContainer parent) {
         this.parent = parent;
+
+        // The UUID and the topics depend on the parent, so they are computed once the element is attached.
+        uuid = parent != null ? new MqttUuid(this) : null;
+
+        // The parent counts its children with changes.
+        changes.attach(parent != null ? parent.getChangeTracker() : null);
     }
 
     public boolean doChildrenHaveChanges() {
-        for (MqttAbstractAttribute attribute: attributes) {
-            if (attribute.hasChanges()) {
-                return true;
-            }
-        }
-        for (MqttObject object: objects) {
-            if (object.hasChanges() || object.doChildrenHaveChanges()) {
-                return true;
-            }
-        }
-
-        return false;
+        return changes.getChangedChildrenCount() > 0;
     }
 
 
@@ -60,14 +54,10 @@ class MqttObject implements ch.hevs.cloudio.client.Object, MqttObjectContainer,
         return name;
     }
 
-    private Uuid uuid = null;
+    private MqttUuid uuid = null;
     @Override
-    public Uuid getUuid() {
-        // Lazy initialisation of UUID.
-        if (uuid == null) {
-            uuid = new MqttUuid(this);
-        }
-        return new MqttUuid(this);
+    public MqttUuid getUuid() {
+        return uuid;
     }
 
     @Override
@@ -83,7 +73,9 @@ class MqttObject implements ch.hevs.cloudio.client.Object, MqttObjectContainer,
             this.conforms = conforms;
 
             // Update.
-            outOfSync = true;
+            changes.setOutOfSync();
+            invalidateFragment();
+            structureHashValid = false;
             parent.containerChanged(this);
         } else {
             throw new IllegalStateException("Can not declare conformity '" + conforms + "'Object already conform to '" +
@@ -106,8 +98,11 @@ class MqttObject implements ch.hevs.cloudio.client.Object, MqttObjectContainer,
 
                 // Set this instance as the parent of the object.
                 object.setParent(this);
+                itemAdded(object);
+                invalidateFragment();
 
                 // Notify my parent that this container has changes.
+                structureHashValid = false;
                 if (parent != null) {
                     parent.containerChanged(this);
                 }
@@ -144,8 +139,11 @@ class MqttObject implements ch.hevs.cloudio.client.Object, MqttObjectContainer,
 
                 // Set this instance as the parent of the attribute.
                 attribute.setParent(this);
+                itemAdded(attribute);
+                invalidateFragment();
 
                 // Notify my parent that this container has changes.
+                structureHashValid = false;
                 parent.containerChanged(this);
 
             } catch (MqttDuplicateItemException e) {
@@ -180,58 +178,129 @@ class MqttObject implements ch.hevs.cloudio.client.Object, MqttObjectContainer,
 
     @Override
     public void containerChanged(MqttContainer container) {
-        // Relay the event to the parent.
+        // The structure of a child has changed, so our structure has changed too. Relay the event to the parent.
+        structureHashValid = false;
         parent.containerChanged(container);
     }
 
     @Override
-    public boolean hasChanges() {
-        // Does the object has changes?
-        return outOfSync;
+    public void attributeConstraintChanged(MqttAbstractAttribute attribute) {
+        // Our structure has changed. Relay the event to the parent.
+        structureHashValid = false;
+        parent.attributeConstraintChanged(attribute);
     }
 
     @Override
-    public int getImmediateChildrenWithChangesCount() {
-        int changes = 0;
+    public void itemAdded(UniqueIdentifiable item) {
+        // Relay the event to the parent.
+        parent.itemAdded(item);
+    }
 
-        // Count the number of attributes with changes.
-        for (MqttAbstractAttribute attribute: attributes) {
-            if (attribute.hasChanges()) {
-                ++changes;
-            }
-        }
+    @Override
+    public void deliverNotification(Runnable notification) {
+        // Relay the notification to the parent.
+        parent.deliverNotification(notification);
+    }
 
-        // Count the number of objects with changes.
-        for (MqttObject object: objects) {
-            if (object.hasChanges() || object.doChildrenHaveChanges()) {
-                ++changes;
+    @Override
+    public Clock getClock() {
+        // Use the clock of the endpoint, elements not yet part of an endpoint use the system clock.
+        return parent != null ? parent.getClock() : Clock.systemUTC();
+    }
+
+    @Override
+    public void readValuesFromMqtt(JsonParser parser, MqttSetBatch batch) throws IOException {
+        // The document has the structure of the object, but contains only the values of the attributes to change.
+        MqttSetBatch.startObject(parser);
+        String field;
+        while ((field = MqttSetBatch.nextField(parser)) != null) {
+            if ("objects".equals(field)) {
+                MqttSetBatch.startObject(parser);
+                String name;
+                while ((name = MqttSetBatch.nextField(parser)) != null) {
+                    MqttObject object = objects.getItem(name);
+                    if (object == null) {
+                        throw MqttSetBatch.invalidDocument(parser, "Unknown object '" + name + "'");
+                    }
+                    object.readValuesFromMqtt(parser, batch);
+                }
+            } else if ("attributes".equals(field)) {
+                MqttSetBatch.startObject(parser);
+                String name;
+                while ((name = MqttSetBatch.nextField(parser)) != null) {
+                    MqttAbstractAttribute attribute = attributes.getItem(name);
+                    if (attribute == null) {
+                        throw MqttSetBatch.invalidDocument(parser, "Unknown attribute '" + name + "'");
+                    }
+                    batch.add(attribute, parser);
+                }
+            } else {
+                throw MqttSetBatch.invalidDocument(parser, "Unexpected field '" + field + "'");
             }
         }
+    }
 
+    @Override
+    public MqttChangeTracker getChangeTracker() {
         return changes;
     }
 
+    @Override
+    public void invalidateFragment() {
+        // Invalidate our cached representation and the one of our parent, as it contains ours.
+        fragment.invalidate();
+        if (parent != null) {
+            parent.invalidateFragment();
+        }
+    }
+
+    @Override
+    public boolean hasChanges() {
+        // Does the object has changes?
+        return changes.isOutOfSync();
+    }
+
+    @Override
+    public int getImmediateChildrenWithChangesCount() {
+        // The attributes and objects with changes are counted as they change.
+        return changes.getChangedChildrenCount();
+    }
+
     @Override
     public void setSynchronized() {
         // Set the object himself as in sync.
-        outOfSync = false;
+        changes.setSynchronized();
+
+        // Children without changes are in sync already, including their own children.
+        if (!doChildrenHaveChanges()) {
+            return;
+        }
 
-        // Set all sub-objects to be in sync.
+        // Set all sub-objects with changes to be in sync.
         for (MqttObject object: objects) {
-            object.setSynchronized();
+            if (object.getChangeTracker().isChanged()) {
+                object.setSynchronized();
+            }
         }
 
         // All attributes are in sync now too.
         for (MqttAbstractAttribute attribute: attributes) {
-            attribute.setSynchronized();
+            if (attribute.hasChanges()) {
+                attribute.setSynchronized();
+            }
         }
     }
 
     @Override
     public void commit(MqttPublisher publisher) {
+        // Nothing to do if neither the object nor its children have changes.
+        if (!changes.isChanged()) {
+            return;
+        }
+
         // If the object has changes or more than 1 attribute/sub-object has changes, publish the whole object.
         if (hasChanges() || getImmediateChildrenWithChangesCount() > 1) {
-            publisher.update(this);
+            publisher.updateChanges(this);
             setSynchronized();
         } else {
             // Call the commit method for all sub-objects.
@@ -247,65 +316,102 @@ class MqttObject implements ch.hevs.cloudio.client.Object, MqttObjectContainer,
     }
 
     @Override
-    public UniqueIdentifiable locate(Stack<String> path) throws EmptyStackException {
-        // If the path is empty now, it refers to the object itself.
-        if (path.isEmpty()) {
-            return this;
-        } else {
-            // Get the child type from the path (can be "objects" or "attributes").
-            String childType = path.pop();
+    public void serializeChanges(JsonGenerator gen) throws IOException {
+        // Start object.
+        gen.writeStartObject();
 
-            if ("objects".equals(childType)) {
-                // If the child type is "objects" search for the object with the given name.
-                MqttObject object = objects.getItem(path.pop());
+        // The conformity is only included if the object itself has changed.
+        if (hasChanges() && conforms != null) {
+            gen.writeStringField("conforms", conforms);
+        }
 
-                // If the object exists continue, otherwise return null.
-                if (object != null) {
-                    return object.locate(path);
-                } else {
-                    return null;
+        // Write the changes of all sub-objects with changes.
+        boolean empty = true;
+        for (MqttObject object: objects) {
+            if (object.getChangeTracker().isChanged()) {
+                if (empty) {
+                    gen.writeObjectFieldStart("objects");
+                    empty = false;
                 }
-            } else if ("attributes".equals(childType)) {
-                // If the child type is "attributes" search for the attribute with the given name.
-                MqttAbstractAttribute attribute = attributes.getItem(path.pop());
+                gen.writeFieldName(object.getName());
+                object.serializeChanges(gen);
+            }
+        }
+        if (!empty) {
+            gen.writeEndObject();
+        }
 
-                // If the attribute exists continue, otherwise return null.
-                if (attribute != null) {
-                    return attribute;
-                } else {
-                    return null;
+        // Write all attributes with changes.
+        empty = true;
+        for (MqttAbstractAttribute attribute: attributes) {
+            if (attribute.hasChanges()) {
+                if (empty) {
+                    gen.writeObjectFieldStart("attributes");
+                    empty = false;
                 }
-            } else {
-                // If the type is invalid, return null.
-                return null;
+                gen.writeFieldName(attribute.getName());
+                attribute.serializeChanges(gen);
             }
         }
+        if (!empty) {
+            gen.writeEndObject();
+        }
+
+        // End object.
+        gen.writeEndObject();
+    }
+
+    @Override
+    public long getStructureHash() {
+        // The hash is only recomputed if the structure has changed since the last time.
+        if (!structureHashValid) {
+            long hash = MqttStructureHash.add(MqttStructureHash.SEED, name);
+            hash = MqttStructureHash.add(hash, conforms);
+            for (MqttObject object: objects) {
+                hash = MqttStructureHash.add(hash, object.getStructureHash());
+            }
+            hash = MqttStructureHash.add(hash, -1);
+            for (MqttAbstractAttribute attribute: attributes) {
+                hash = MqttStructureHash.add(hash, attribute.getStructureHash());
+            }
+            structureHash = hash;
+            structureHashValid = true;
+        }
+
+        return structureHash;
     }
 
 
-    /*** JsonSerializable implementation ******************************************************************************/
+    /*** MqttSerializable implementation ******************************************************************************/
 
     @Override
-    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+    public void serialize(JsonGenerator gen) throws IOException {
+        // Use the cached representation if nothing has changed since the last serialization.
+        if (fragment.write(gen)) {
+            return;
+        }
+        long fragmentMark = fragment.begin(gen);
+
         // Start object.
         gen.writeStartObject();
 
         // Write conformity, the objects set and the attribute set.
         if (conforms != null) {
-            gen.writeObjectField("conforms", conforms);
+            gen.writeStringField("conforms", conforms);
         }
         if (!objects.isEmtpy()) {
-            gen.writeObjectField("objects", objects);
+            gen.writeFieldName("objects");
+            objects.serialize(gen);
         }
         if (!attributes.isEmtpy()) {
-            gen.writeObjectField("attributes", attributes);
+            gen.writeFieldName("attributes");
+            attributes.serialize(gen);
         }
 
         // End object.
         gen.writeEndObject();
-    }
 
-    @Override
-    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
-            throws IOException {}
+        // Cache the representation for the next time.
+        fragment.end(gen, fragmentMark);
+    }
 }
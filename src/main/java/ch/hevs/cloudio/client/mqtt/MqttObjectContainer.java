@@ -1,5 +1,10 @@
 package ch.hevs.cloudio.client.mqtt;
 
 import ch.hevs.cloudio.client.ObjectContainer;
+import com.fasterxml.jackson.core.JsonParser;
 
-interface MqttObjectContainer extends ObjectContainer, MqttContainer {}
+import java.io.IOException;
+
+interface MqttObjectContainer extends ObjectContainer, MqttContainer {
+    void readValuesFromMqtt(JsonParser parser, MqttSetBatch batch) throws IOException;
+}
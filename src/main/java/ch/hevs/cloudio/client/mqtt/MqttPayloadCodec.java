@@ -0,0 +1,23 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encoding used for the payloads of all messages exchanged between an endpoint and the cloud.iO broker. A codec is
+ * based on the Jackson streaming API, so the data model serializes itself independently of the actual encoding.
+ */
+interface MqttPayloadCodec {
+    String getName();
+    boolean isTextual();
+
+    JsonGenerator createGenerator(OutputStream out) throws IOException;
+    JsonParser createParser(byte[] payload) throws IOException;
+
+    boolean supportsFragments();
+    boolean isValueSeparator(byte b);
+    void writeFragment(JsonGenerator gen, OutputStream out, byte[] fragment) throws IOException;
+}
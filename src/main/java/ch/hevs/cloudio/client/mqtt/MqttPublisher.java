@@ -4,4 +4,5 @@ import ch.hevs.cloudio.client.UniqueIdentifiable;
 
 interface MqttPublisher {
     void update(UniqueIdentifiable object);
+    void updateChanges(MqttSynchronizable container);
 }
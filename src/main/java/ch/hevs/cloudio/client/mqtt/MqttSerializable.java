@@ -0,0 +1,9 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+interface MqttSerializable {
+    void serialize(JsonGenerator gen) throws IOException;
+}
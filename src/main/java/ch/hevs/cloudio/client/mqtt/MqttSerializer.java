@@ -0,0 +1,109 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Serializes the data model into MQTT payloads using the Jackson streaming API and the given payload codec. All
+ * payloads of an endpoint are written by a single generator into a single reusable byte buffer and are then copied
+ * once into an array of exactly the payload length taken from the given buffer pool, which the MQTT client can take as
+ * is. The array has to be released once the MQTT client has delivered the message.
+ */
+class MqttSerializer {
+    private final MqttPayloadCodec codec;
+    private final MqttBufferPool pool;
+    private final Buffer buffer;
+    private JsonGenerator generator = null;
+
+    public MqttSerializer(MqttPayloadCodec codec) {
+        this(codec, null);
+    }
+
+    public MqttSerializer(MqttPayloadCodec codec, MqttBufferPool pool) {
+        this.codec = codec;
+        this.pool = pool;
+        this.buffer = new Buffer(codec);
+    }
+
+    public MqttPayloadCodec getCodec() {
+        return codec;
+    }
+
+    public synchronized byte[] serialize(MqttSerializable item) throws IOException {
+        buffer.reset();
+
+        try {
+            // Each payload is a root level value of the same generator.
+            JsonGenerator gen = getGenerator();
+            item.serialize(gen);
+            gen.flush();
+        } catch (IOException exception) {
+            // The generator is in an undefined state, so we throw it away.
+            generator = null;
+            throw exception;
+        } catch (RuntimeException exception) {
+            generator = null;
+            throw exception;
+        }
+
+        // Copy the payload into an array of its exact length.
+        byte[] payload = acquire(buffer.size());
+        buffer.copyTo(payload);
+        return payload;
+    }
+
+    public void serialize(MqttSerializable item, OutputStream out) throws IOException {
+        // Use a dedicated generator writing directly into the given stream, so the reusable buffer is not involved.
+        JsonGenerator gen = codec.createGenerator(out);
+        item.serialize(gen);
+        gen.close();
+    }
+
+    public byte[] acquire(int length) {
+        return pool != null ? pool.acquire(length) : new byte[length];
+    }
+
+    public void release(byte[] payload) {
+        if (pool != null) {
+            pool.release(payload);
+        }
+    }
+
+    private JsonGenerator getGenerator() throws IOException {
+        // Lazy initialisation of the generator.
+        if (generator == null) {
+            generator = codec.createGenerator(buffer);
+        }
+        return generator;
+    }
+
+    // Output buffer of the serializer, allows fragments of the payload to be captured and spliced.
+    static class Buffer extends ByteArrayOutputStream {
+        private final MqttPayloadCodec codec;
+
+        Buffer(MqttPayloadCodec codec) {
+            super(1024);
+            this.codec = codec;
+        }
+
+        MqttPayloadCodec getCodec() {
+            return codec;
+        }
+
+        byte get(int index) {
+            return buf[index];
+        }
+
+        byte[] copy(int from, int to) {
+            return Arrays.copyOfRange(buf, from, to);
+        }
+
+        void copyTo(byte[] destination) {
+            System.arraycopy(buf, 0, destination, 0, count);
+        }
+    }
+}
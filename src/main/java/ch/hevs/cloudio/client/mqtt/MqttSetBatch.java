@@ -0,0 +1,107 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import ch.hevs.cloudio.client.Attribute;
+import ch.hevs.cloudio.client.AttributeBatchListener;
+import ch.hevs.cloudio.client.AttributeListener;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Values received by a single @set message on a node or an object. The message contains a document with the structure
+ * of the container, but only with the values of the attributes to change, for example:
+ *
+ * {"objects": {"heater": {"attributes": {"setPoint": 21.5, "enabled": true}}}}
+ *
+ * All values are decoded and validated before any of them is applied, if one of them is invalid the whole batch is
+ * rejected. Listeners are notified once the whole batch has been applied.
+ */
+class MqttSetBatch {
+    private List<MqttAbstractAttribute> attributes = new ArrayList<MqttAbstractAttribute>();
+    private List<Object> values = new ArrayList<Object>();
+
+    void add(MqttAbstractAttribute attribute, JsonParser parser) throws IOException {
+        attributes.add(attribute);
+        values.add(attribute.decodeValueFromMqtt(parser));
+    }
+
+    List<MqttAbstractAttribute> getAttributes() {
+        return attributes;
+    }
+
+    boolean isEmpty() {
+        return attributes.isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    boolean validate() {
+        for (int i = 0; i < attributes.size(); ++i) {
+            MqttAbstractAttribute attribute = attributes.get(i);
+            if (!attribute.isWritableFromMqtt() || !attribute.isValidFromMqtt(values.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    void apply() {
+        for (int i = 0; i < attributes.size(); ++i) {
+            attributes.get(i).applyValueFromMqtt(values.get(i));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void notifyListeners() {
+        // Group the changed attributes by listener, so that batch listeners are notified only once.
+        Map<AttributeListener, List<Attribute>> changes = new LinkedHashMap<AttributeListener, List<Attribute>>();
+        for (MqttAbstractAttribute attribute: attributes) {
+            for (AttributeListener listener: (List<AttributeListener>) attribute.getListeners()) {
+                List<Attribute> changed = changes.get(listener);
+                if (changed == null) {
+                    changed = new ArrayList<Attribute>();
+                    changes.put(listener, changed);
+                }
+                changed.add(attribute);
+            }
+        }
+
+        for (Map.Entry<AttributeListener, List<Attribute>> entry: changes.entrySet()) {
+            if (entry.getKey() instanceof AttributeBatchListener) {
+                ((AttributeBatchListener) entry.getKey()).attributesChanged(entry.getValue());
+            } else {
+                for (Attribute attribute: entry.getValue()) {
+                    entry.getKey().attributeChanged(attribute);
+                }
+            }
+        }
+    }
+
+    static void startObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw invalidDocument(parser, "Object expected");
+        }
+    }
+
+    // Returns the name of the next field of the current object or null at the end of the object.
+    static String nextField(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.FIELD_NAME) {
+            return parser.getCurrentName();
+        } else if (token == JsonToken.END_OBJECT) {
+            return null;
+        } else {
+            throw invalidDocument(parser, "Field name expected");
+        }
+    }
+
+    static JsonParseException invalidDocument(JsonParser parser, String message) {
+        return new JsonParseException(message, parser.getCurrentLocation());
+    }
+}
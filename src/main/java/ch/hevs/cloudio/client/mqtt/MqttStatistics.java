@@ -0,0 +1,155 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runtime statistics of a MQTT endpoint. The counters are cumulative since the creation of the endpoint and can be
+ * read at any time from any thread. Use MqttFactory.getStatistics() in order to get the statistics of an endpoint.
+ *
+ * @see MqttFactory#getStatistics(ch.hevs.cloudio.client.Endpoint)
+ */
+public class MqttStatistics {
+    private final AtomicLong publishedMessages = new AtomicLong();
+    private final AtomicLong publishedBytes = new AtomicLong();
+    private final AtomicLong allocatedPayloads = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong recycledPayloads = new AtomicLong();
+    private final AtomicLong droppedInboundMessages = new AtomicLong();
+    private final AtomicLong conflatedInboundMessages = new AtomicLong();
+    private final AtomicLong rejectedInboundMessages = new AtomicLong();
+    private final AtomicLong invalidInboundMessages = new AtomicLong();
+    private final AtomicLong throttledInboundMessages = new AtomicLong();
+
+    MqttStatistics() {}
+
+    /**
+     * Returns the number of messages handed over to the MQTT client for publishing.
+     *
+     * @return  Number of published messages.
+     */
+    public long getPublishedMessages() {
+        return publishedMessages.get();
+    }
+
+    /**
+     * Returns the total payload size of all messages handed over to the MQTT client for publishing.
+     *
+     * @return  Number of published payload bytes.
+     */
+    public long getPublishedBytes() {
+        return publishedBytes.get();
+    }
+
+    /**
+     * Returns the number of payload arrays that had to be allocated, because no array of the exact payload length was
+     * available in the buffer pool of the endpoint.
+     *
+     * @return  Number of allocated payload arrays.
+     */
+    public long getAllocatedPayloads() {
+        return allocatedPayloads.get();
+    }
+
+    /**
+     * Returns the total size of all payload arrays that had to be allocated. In steady state, this value should not
+     * increase anymore, as all payloads are copied into arrays recycled after the delivery of earlier messages.
+     *
+     * @return  Number of allocated payload bytes.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /**
+     * Returns the number of payload arrays taken from the buffer pool of the endpoint instead of being allocated.
+     *
+     * @return  Number of recycled payload arrays.
+     */
+    public long getRecycledPayloads() {
+        return recycledPayloads.get();
+    }
+
+    /**
+     * Returns the number of received messages that have been dropped without being processed, because the queue of
+     * the inbound dispatcher was full.
+     *
+     * @return  Number of dropped inbound messages.
+     */
+    public long getDroppedInboundMessages() {
+        return droppedInboundMessages.get();
+    }
+
+    /**
+     * Returns the number of received messages that have been replaced by a newer message for the same attribute
+     * before being processed. Messages are only conflated if inbound conflation is enabled.
+     *
+     * @return  Number of conflated inbound messages.
+     */
+    public long getConflatedInboundMessages() {
+        return conflatedInboundMessages.get();
+    }
+
+    /**
+     * Returns the number of received messages that have been rejected: messages for unknown topics, for attributes
+     * that can not be changed from remote (neither PARAMETER nor SET_POINT) and messages with values refused by an
+     * attribute validator.
+     *
+     * @return  Number of rejected inbound messages.
+     */
+    public long getRejectedInboundMessages() {
+        return rejectedInboundMessages.get();
+    }
+
+    /**
+     * Returns the number of received messages that have been ignored because their payload could not be decoded.
+     *
+     * @return  Number of invalid inbound messages.
+     */
+    public long getInvalidInboundMessages() {
+        return invalidInboundMessages.get();
+    }
+
+    /**
+     * Returns the number of received messages that have been dropped or replaced by a newer message because they
+     * changed an attribute more often than allowed by its minimal set interval.
+     *
+     * @return  Number of throttled inbound messages.
+     */
+    public long getThrottledInboundMessages() {
+        return throttledInboundMessages.get();
+    }
+
+    void messagePublished(int size) {
+        publishedMessages.incrementAndGet();
+        publishedBytes.addAndGet(size);
+    }
+
+    void payloadAllocated(int size) {
+        allocatedPayloads.incrementAndGet();
+        allocatedBytes.addAndGet(size);
+    }
+
+    void payloadRecycled() {
+        recycledPayloads.incrementAndGet();
+    }
+
+    void inboundMessageDropped() {
+        droppedInboundMessages.incrementAndGet();
+    }
+
+    void inboundMessageConflated() {
+        conflatedInboundMessages.incrementAndGet();
+    }
+
+    void inboundMessageRejected() {
+        rejectedInboundMessages.incrementAndGet();
+    }
+
+    void inboundMessageInvalid() {
+        invalidInboundMessages.incrementAndGet();
+    }
+
+    void inboundMessageThrottled() {
+        throttledInboundMessages.incrementAndGet();
+    }
+}
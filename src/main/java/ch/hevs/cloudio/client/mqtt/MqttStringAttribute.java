@@ -2,15 +2,12 @@ package ch.hevs.cloudio.client.mqtt;
 
 import ch.hevs.cloudio.client.Attribute;
 import ch.hevs.cloudio.client.AttributeConstraint;
-import ch.hevs.cloudio.client.AttributeListener;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.JsonSerializable;
-import com.fasterxml.jackson.databind.SerializerProvider;
-import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.core.JsonParser;
 
 import java.io.IOException;
 
-class MqttStringAttribute extends MqttAbstractAttribute<String> implements JsonSerializable {
+class MqttStringAttribute extends MqttAbstractAttribute<String> {
     private String value;
 
     public MqttStringAttribute(String name) {
@@ -22,29 +19,34 @@ class MqttStringAttribute extends MqttAbstractAttribute<String> implements JsonS
         return String.class;
     }
 
-    void setValueFromMqtt(String value) {
-        // Only PARAMETER and SET_POINT can be changed from remote.
-        if (getConstraint() == AttributeConstraint.PARAMETER || getConstraint() == AttributeConstraint.SET_POINT) {
-            // Let the validator check the value before actually applying it.
-            if (getValidator() == null || getValidator().validate(this, value)) {
-                // Apply new value and update timestamp with current system timestamp.
-                this.value = value;
-                this.setTimestamp(System.currentTimeMillis() / 1000f);
+    @Override
+    boolean setValueFromMqtt(JsonParser parser) throws IOException {
+        return setValueFromMqtt(MqttValueDecoder.decodeString(parser));
+    }
 
-                // The value is out of sync.
-                this.setOutOfSync();
+    @Override
+    String decodeValueFromMqtt(JsonParser parser) throws IOException {
+        return MqttValueDecoder.decodeString(parser);
+    }
 
-                // Inform all attribute listeners about the change.
-                for (AttributeListener listener : getListeners()) {
-                    listener.attributeChanged(this);
-                }
+    @Override
+    void applyValueFromMqtt(String value) {
+        // Apply new value and update timestamp with current system timestamp, the value is out of sync now.
+        this.value = value;
+        this.setTimestamp(currentTimeMillis());
+        this.setOutOfSync();
+    }
 
-                // Inform parent about the change.
-                if (getParent() != null) {
-                    getParent().attributeChanged(this);
-                }
-            }
+    boolean setValueFromMqtt(String value) {
+        // Only PARAMETER and SET_POINT can be changed from remote, let the validator check the value before actually
+        // applying it.
+        if (isWritableFromMqtt() && isValidFromMqtt(value)) {
+            applyValueFromMqtt(value);
+            changedFromMqtt();
+            return true;
         }
+
+        return false;
     }
 
 
@@ -59,11 +61,16 @@ class MqttStringAttribute extends MqttAbstractAttribute<String> implements JsonS
     @Override
     public void setValue(String value) throws IllegalArgumentException, IllegalAccessError {
         // Call method with current timestamp in milliseconds.
-        setValue(value, (float)System.currentTimeMillis() / 1000f);
+        update(value, currentTimeMillis());
     }
 
     @Override
     public void setValue(String value, float timestamp) throws IllegalArgumentException, IllegalAccessError {
+        // Timestamps are stored in milliseconds.
+        update(value, toMillis(timestamp));
+    }
+
+    private void update(String value, long timestamp) throws IllegalArgumentException, IllegalAccessError {
         // Only attributes with constraint STATUS, MEASURE and initial value for all others can be updated from endpoint
         // context.
         if (getConstraint() == AttributeConstraint.STATUS || getConstraint() == AttributeConstraint.MEASURE) {
@@ -93,7 +100,8 @@ class MqttStringAttribute extends MqttAbstractAttribute<String> implements JsonS
         if (this.value == null) {
             if (getValidator() == null || getValidator().validate(this, value)) {
                 this.value = value;
-                this.setTimestamp(timestamp);
+                this.setTimestamp(toMillis(timestamp));
+                this.invalidateParentFragment();
             } else {
                 throw new IllegalArgumentException("Validator " + getValidator().toString() + " rejected value " +
                         (value == null ? "null" : value.toString()));
@@ -106,36 +114,33 @@ class MqttStringAttribute extends MqttAbstractAttribute<String> implements JsonS
     }
 
 
-    /*** JsonSerializable implementation ******************************************************************************/
+    /*** MqttSerializable implementation ******************************************************************************/
 
     @Override
-    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+    public void serialize(JsonGenerator gen) throws IOException {
         // Start attribute object.
         gen.writeStartObject();
 
         // Write datatype.
-        gen.writeObjectField("type", "String");
+        gen.writeStringField("type", "String");
 
         // Write constraint.
-        gen.writeObjectField("constraint", getConstraint());
+        gen.writeStringField("constraint", getConstraint().toString());
 
         // If the constraint is STATIC, the timestamp is null otherwise include the timestamp.
         if (getConstraint() != AttributeConstraint.STATIC && getTimestamp() != 0) {
-            gen.writeNumberField("timestamp", getTimestamp());
+            MqttNumberWriter.writeTimestampField(gen, "timestamp", getTimestamp());
         }
 
-        // Try to serialize the value.
-        try {
-            gen.writeObjectField("value", value);
-        } catch (Exception exception) {
-            gen.writeString("ERROR: Attribute value not serializable!");
+        // Write the value.
+        gen.writeFieldName("value");
+        if (value != null) {
+            gen.writeString(value);
+        } else {
+            gen.writeNull();
         }
 
         // Write object end tag.
         gen.writeEndObject();
     }
-
-    @Override
-    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
-            throws IOException {}
 }
@@ -0,0 +1,41 @@
+package ch.hevs.cloudio.client.mqtt;
+
+/**
+ * Helper to compute stable 64 bit hashes (FNV-1a) of the structure of the data model. In contrast to hashCode(), the
+ * result only depends on the values hashed, so it is the same for the same structure on every run of the endpoint.
+ */
+final class MqttStructureHash {
+    static final long SEED = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private MqttStructureHash() {}
+
+    static long add(long hash, long value) {
+        for (int i = 0; i < 8; ++i) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= PRIME;
+        }
+        return hash;
+    }
+
+    static long add(long hash, String value) {
+        // Include the length in order to distinguish ("ab", "c") from ("a", "bc").
+        if (value == null) {
+            return add(hash, -1);
+        }
+        hash = add(hash, value.length());
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            hash ^= c & 0xff;
+            hash *= PRIME;
+            hash ^= c >>> 8;
+            hash *= PRIME;
+        }
+        return hash;
+    }
+
+    static String toString(long hash) {
+        String hex = Long.toHexString(hash);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+}
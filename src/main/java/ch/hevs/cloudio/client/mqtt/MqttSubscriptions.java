@@ -0,0 +1,102 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Subscriptions of an endpoint limited to the elements that can actually be changed from remote: the @set topics of
+ * all PARAMETER and SET_POINT attributes and the @set topics of all nodes and objects containing at least one of them
+ * (in order to receive messages setting many attributes at once). Every topic has a reference count, which is the
+ * number of writable attributes it is subscribed for, so that it can be unsubscribed as soon as it is not needed
+ * anymore. While connected, changes are subscribed and unsubscribed immediately, otherwise all topics are subscribed
+ * once the endpoint is online.
+ */
+class MqttSubscriptions {
+    // Number of topics subscribed using a single SUBSCRIBE message.
+    private static final int BATCH_SIZE = 256;
+
+    private MqttAsyncClient mqtt;
+    private Set<MqttAbstractAttribute> writableAttributes = new HashSet<MqttAbstractAttribute>();
+    private Map<String, Integer> topics = new HashMap<String, Integer>();
+
+    MqttSubscriptions(MqttAsyncClient mqtt) {
+        this.mqtt = mqtt;
+    }
+
+    synchronized void attributeConstraintChanged(MqttAbstractAttribute attribute) {
+        // Only changes between writable and read-only matter.
+        boolean writable = attribute.isWritableFromMqtt();
+        if (writable && writableAttributes.add(attribute)) {
+            reference(attribute, 1);
+        } else if (!writable && writableAttributes.remove(attribute)) {
+            reference(attribute, -1);
+        }
+    }
+
+    void subscribeAll() throws MqttException {
+        String[] all;
+        synchronized (this) {
+            all = topics.keySet().toArray(new String[topics.size()]);
+        }
+
+        for (int i = 0; i < all.length; i += BATCH_SIZE) {
+            String[] batch = Arrays.copyOfRange(all, i, Math.min(i + BATCH_SIZE, all.length));
+            int[] qos = new int[batch.length];
+            Arrays.fill(qos, 1);
+            mqtt.subscribe(batch, qos).waitForCompletion();
+        }
+    }
+
+    private void reference(MqttAbstractAttribute attribute, int delta) {
+        // The attribute itself and all its parents up to the node.
+        List<String> path = new ArrayList<String>();
+        path.add(attribute.getUuid().getSetTopic());
+        MqttObjectContainer container = attribute.getParent();
+        while (container != null) {
+            path.add(((MqttUuid) container.getUuid()).getSetTopic());
+            container = container instanceof MqttObject ? ((MqttObject) container).getParent() : null;
+        }
+
+        for (String topic: path) {
+            Integer count = topics.get(topic);
+            int references = (count == null ? 0 : count) + delta;
+            if (references > 0) {
+                topics.put(topic, references);
+                if (count == null) {
+                    subscribe(topic);
+                }
+            } else {
+                topics.remove(topic);
+                unsubscribe(topic);
+            }
+        }
+    }
+
+    private void subscribe(String topic) {
+        try {
+            if (mqtt != null && mqtt.isConnected()) {
+                mqtt.subscribe(topic, 1);
+            }
+        } catch (MqttException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    private void unsubscribe(String topic) {
+        try {
+            if (mqtt != null && mqtt.isConnected()) {
+                mqtt.unsubscribe(topic);
+            }
+        } catch (MqttException exception) {
+            exception.printStackTrace();
+        }
+    }
+}
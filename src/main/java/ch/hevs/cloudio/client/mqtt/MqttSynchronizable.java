@@ -1,6 +1,9 @@
 package ch.hevs.cloudio.client.mqtt;
 
 import ch.hevs.cloudio.client.UniqueIdentifiable;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
 
 interface MqttSynchronizable extends UniqueIdentifiable {
     boolean hasChanges();
@@ -8,4 +11,6 @@ interface MqttSynchronizable extends UniqueIdentifiable {
 
     void setSynchronized();
     void commit(MqttPublisher publisher);
+    void serializeChanges(JsonGenerator gen) throws IOException;
+    long getStructureHash();
 }
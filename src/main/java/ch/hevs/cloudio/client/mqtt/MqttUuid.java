@@ -6,24 +6,36 @@ class MqttUuid implements Uuid {
     // In the case of the MQTT transport, the topic is the UUID for every object.
     private String topic;
 
+    // The topic used to publish updates, precomputed as it is used on every message. The topics used to publish deltas
+    // and to receive set commands are only needed in delta mode and for writable elements, so they are computed the
+    // first time they are used.
+    private String updateTopic;
+    private String deltaTopic = null;
+    private String setTopic = null;
+
     // Create the UUID for a MQTT Endpoint.
     public MqttUuid(MqttEndpoint endpoint) {
-        topic = endpoint.getName();
+        setTopic(endpoint.getName());
     }
 
     // Create the UUID for a Node.
     public MqttUuid(MqttNode node) {
-        topic = node.getParent().getUuid().toString() + "/nodes/" + node.getName();
+        setTopic(node.getParent().getUuid().toString() + "/nodes/" + node.getName());
     }
 
     // Create the UUID for an Object.
     public MqttUuid(MqttObject object) {
-        topic = object.getParent().getUuid().toString() + "/objects/" + object.getName();
+        setTopic(object.getParent().getUuid().toString() + "/objects/" + object.getName());
     }
 
     // Create the UUID for an Attribute.
     public MqttUuid(MqttAbstractAttribute attribute) {
-        topic = attribute.getParent().getUuid().toString() + "/attributes/" + attribute.getName();
+        setTopic(attribute.getParent().getUuid().toString() + "/attributes/" + attribute.getName());
+    }
+
+    private void setTopic(String topic) {
+        this.topic = topic.intern();
+        updateTopic = ("@update/" + topic).intern();
     }
 
     // Returns the topic.
@@ -31,6 +43,32 @@ class MqttUuid implements Uuid {
         return topic;
     }
 
+    // Returns the topic used to publish updates of the element.
+    public String getUpdateTopic() {
+        return updateTopic;
+    }
+
+    // Returns the topic used to publish delta documents of the element.
+    public String getDeltaTopic() {
+        // Concurrent callers compute the same interned string, so there is no need to synchronize.
+        if (deltaTopic == null) {
+            deltaTopic = ("@delta/" + topic).intern();
+        }
+        return deltaTopic;
+    }
+
+    // Returns the topic on which set commands for the element are received.
+    public String getSetTopic() {
+        if (setTopic == null) {
+            setTopic = ("@set/" + topic).intern();
+        }
+        return setTopic;
+    }
+
+    // Returns true if the topic on which set commands for the element are received has been computed already.
+    public boolean hasSetTopic() {
+        return setTopic != null;
+    }
 
     /*** Uuid Implementation ******************************************************************************************/
 
@@ -0,0 +1,80 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Decodes the value of an inbound @set message directly from the parser of the codec, without going through an
+ * ObjectMapper and without boxing. The accepted representations are the same the ObjectMapper accepted for the
+ * corresponding wrapper types: numbers and booleans may also be given as strings, integers may be given as floating
+ * point numbers (the fraction is truncated) and booleans may be given as integers (0 is false). Null values are
+ * rejected, as they can not be represented by a primitive.
+ */
+final class MqttValueDecoder {
+    private MqttValueDecoder() {}
+
+    static boolean decodeBoolean(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_TRUE) {
+            return true;
+        } else if (token == JsonToken.VALUE_FALSE) {
+            return false;
+        } else if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue() != 0;
+        } else if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            if ("true".equals(text)) {
+                return true;
+            } else if ("false".equals(text)) {
+                return false;
+            }
+        }
+        throw invalidValue(parser, "boolean");
+    }
+
+    static int decodeInteger(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getValueAsInt();
+        } else if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Integer.parseInt(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                // Reported below.
+            }
+        }
+        throw invalidValue(parser, "integer");
+    }
+
+    static double decodeDouble(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        } else if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Double.parseDouble(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                // Reported below.
+            }
+        }
+        throw invalidValue(parser, "number");
+    }
+
+    static String decodeString(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token != null && token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+            return parser.getText();
+        }
+        throw invalidValue(parser, "string");
+    }
+
+    private static JsonParseException invalidValue(JsonParser parser, String type) {
+        return new JsonParseException("Payload does not contain a valid " + type + " value",
+                parser.getCurrentLocation());
+    }
+}
@@ -0,0 +1,33 @@
+package ch.hevs.cloudio.client.validator;
+
+import ch.hevs.cloudio.client.Attribute;
+import ch.hevs.cloudio.client.IntegerValidator;
+
+/**
+ * Checks that the number is in a given valid range. Same as RangeValidator, but validates primitive int values
+ * without boxing them.
+ */
+public class IntegerRangeValidator implements IntegerValidator {
+    private int min, max;
+
+    /**
+     * Creates a new range validator that starts at min (including min) and ends with max (including max).
+     *
+     * @param min   Minimal value.
+     * @param max   Maximal value.
+     */
+    public IntegerRangeValidator(int min, int max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    @Override
+    public boolean validate(Attribute attribute, int newValue) {
+        return min <= newValue && max >= newValue;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + min + ", " + max +"]";
+    }
+}
@@ -0,0 +1,93 @@
+package ch.hevs.cloudio.client.mqtt;
+
+import ch.hevs.cloudio.client.AttributeConstraint;
+import ch.hevs.cloudio.client.NumberAttribute;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class MqttFragmentCacheTest {
+    private MqttSerializer serializer;
+    private MqttEndpoint endpoint;
+    private NumberAttribute first;
+    private NumberAttribute second;
+
+    // Runs once when the generator is about to write the field with the given name.
+    private String hookField = null;
+    private Runnable hook = null;
+
+    // Number of times the generator was asked to write the field of the first attribute.
+    private int firstWritten = 0;
+
+    @Before
+    public void setup() {
+        // The generator of the codec lets the test change the model while it is being serialized.
+        serializer = new MqttSerializer(new MqttJsonCodec(false) {
+            @Override
+            public JsonGenerator createGenerator(OutputStream out) throws IOException {
+                return new JsonGeneratorDelegate(super.createGenerator(out)) {
+                    @Override
+                    public void writeFieldName(String name) throws IOException {
+                        if (name.equals("first")) {
+                            ++firstWritten;
+                        }
+                        if (hook != null && name.equals(hookField)) {
+                            Runnable running = hook;
+                            hook = null;
+                            running.run();
+                        }
+                        super.writeFieldName(name);
+                    }
+                };
+            }
+        });
+        endpoint = new MqttEndpoint("endpoint", null, null, null, serializer, new MqttStatistics());
+        ch.hevs.cloudio.client.Object object = endpoint.node("node").object("object");
+        first = (NumberAttribute) object.attribute("first", Double.class).constraint(AttributeConstraint.MEASURE);
+        second = (NumberAttribute) object.attribute("second", Double.class).constraint(AttributeConstraint.MEASURE);
+        first.setValue(1.0);
+        second.setValue(1.0);
+    }
+
+    @Test
+    public void cachedFragmentIsReused() throws IOException {
+        assertEquals(1.0, serialize().at("/nodes/node/objects/object/attributes/first/value").asDouble(), 0);
+        assertEquals(1, firstWritten);
+
+        // The cached fragment is spliced as is, so the attribute is not written again.
+        assertEquals(1.0, serialize().at("/nodes/node/objects/object/attributes/first/value").asDouble(), 0);
+        assertEquals(1, firstWritten);
+
+        first.setValue(2.0);
+        assertEquals(2.0, serialize().at("/nodes/node/objects/object/attributes/first/value").asDouble(), 0);
+        assertEquals(2, firstWritten);
+    }
+
+    @Test
+    public void changeDuringSerializationIsNotCached() throws IOException {
+        // Change the first attribute after it has been written, as another thread would do concurrently.
+        hookField = "second";
+        hook = new Runnable() {
+            @Override
+            public void run() {
+                first.setValue(2.0);
+            }
+        };
+        assertEquals(1.0, serialize().at("/nodes/node/objects/object/attributes/first/value").asDouble(), 0);
+
+        // The payload written during the change must not be reused.
+        assertEquals(2.0, serialize().at("/nodes/node/objects/object/attributes/first/value").asDouble(), 0);
+    }
+
+    private JsonNode serialize() throws IOException {
+        return new ObjectMapper().readTree(serializer.serialize(endpoint));
+    }
+}